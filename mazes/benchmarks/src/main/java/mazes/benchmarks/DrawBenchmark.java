@@ -0,0 +1,52 @@
+package mazes.benchmarks;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time Maze.draw() (the Renderer) on an already carved maze, writing
+ * into a sink which throws the output away, so that the terminal does
+ * not dominate the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class DrawBenchmark {
+
+	@Param({ "BackTracker", "BinaryTree", "Prim", "Kruskal" })
+	public String algorithm;
+
+	@Param({ "10", "100", "1000", "4096" })
+	public int size;
+
+	private Object _maze;
+	private MethodHandle _draw;
+
+	@Setup
+	public void setup() throws Throwable {
+		_maze = (Object) Mazes.constructor(algorithm).invokeExact(size, size, 1L);
+		Mazes.setOutput(algorithm, _maze, OutputStream.nullOutputStream());
+		_draw = Mazes.draw(algorithm);
+	}
+
+	@Benchmark
+	public void draw() throws Throwable {
+		_draw.invokeExact(_maze);
+	}
+}
@@ -0,0 +1,55 @@
+package mazes.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time how long each generator takes to carve a (square) maze: its
+ * (w,h,seed) constructor carves the whole maze without drawing it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+
+	@Param({ "BackTracker", "BinaryTree", "Prim", "Kruskal" })
+	public String algorithm;
+
+	@Param({ "10", "100", "1000", "4096" })
+	public int size;
+
+	@Param({ "1", "42" })
+	public long seed;
+
+	// RandomSource the generators draw from; compare with e.g. -p random=lcg,splittable,xoshiro
+	@Param({ "lcg" })
+	public String random;
+
+	private MethodHandle _constructor;
+
+	@Setup
+	public void setup() throws Throwable {
+		Mazes.setRandom(algorithm, random);
+		_constructor = Mazes.constructor(algorithm);
+	}
+
+	@Benchmark
+	public Object carve() throws Throwable {
+		return (Object) _constructor.invokeExact(size, size, seed);
+	}
+}
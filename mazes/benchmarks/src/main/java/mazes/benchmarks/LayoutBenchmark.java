@@ -0,0 +1,53 @@
+package mazes.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time each generator carving a maze into a grid laid out row by row,
+ * and into one laid out in Morton (Z-order) tiles. The sizes start at
+ * 2048x2048 (2 MB of 4-bit cells, 4 MB for Prim) and go on well past
+ * the L3 cache, where the layout matters most.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class LayoutBenchmark {
+
+	@Param({ "BackTracker", "BinaryTree", "Prim", "Kruskal" })
+	public String algorithm;
+
+	@Param({ "rows", "morton" })
+	public String layout;
+
+	@Param({ "2048", "4096", "8192" })
+	public int size;
+
+	private MethodHandle _constructor;
+
+	@Setup
+	public void setup() throws Throwable {
+		Mazes.setLayout(algorithm, layout);
+		_constructor = Mazes.constructor(algorithm);
+	}
+
+	@Benchmark
+	public Object carve() throws Throwable {
+		return (Object) _constructor.invokeExact(size, size, 1L);
+	}
+}
@@ -0,0 +1,39 @@
+package mazes.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks, taking the usual JMH command line, e.g.
+ *
+ * <pre>
+ * > java -jar target/benchmarks.jar GeneratorBenchmark -p size=1000
+ * </pre>
+ *
+ * Unless some other profiler is asked for (with -prof), the GC profiler
+ * is added, so that every result comes with its allocation rate
+ * (gc.alloc.rate, and gc.alloc.rate.norm in bytes per operation).
+ */
+public final class Main {
+
+	private Main() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if ( cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+				|| cmd.shouldListProfilers() || cmd.shouldListResultFormats() ) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+		if ( cmd.getProfilers().isEmpty() ) {
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+}
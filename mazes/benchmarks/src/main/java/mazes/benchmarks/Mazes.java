@@ -0,0 +1,169 @@
+package mazes.benchmarks;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives the benchmarks access to the maze generators.
+ *
+ * Each maze directory is a separate program in the default package, with
+ * its own copies of Maze, Grid, Renderer and so on, so the build compiles
+ * each one into a directory of its own under the classes root (see the
+ * pom), and each is loaded here with a class loader of its own. Their
+ * constructors and methods are then called through method handles.
+ */
+public final class Mazes {
+
+	private static final Map<String, ClassLoader> LOADERS = new ConcurrentHashMap<>();
+
+	private Mazes() {
+	}
+
+	/**
+	 * Return the maze directory holding the given algorithm.
+	 */
+	public static String directory(String algorithm) {
+		switch ( algorithm ) {
+		case "BackTracker":
+			return "maze-01";
+		case "BinaryTree":
+			return "maze-02";
+		case "Prim":
+		case "WeightedPrim":
+			return "maze-03";
+		case "Kruskal":
+			return "maze-04";
+		}
+		throw new IllegalArgumentException("unknown algorithm: " + algorithm);
+	}
+
+	/**
+	 * Load the class of the given algorithm.
+	 */
+	public static Class<?> load(String algorithm) {
+		try {
+			return Class.forName(algorithm, true, loader(directory(algorithm)));
+		} catch ( ClassNotFoundException ex ) {
+			throw new IllegalStateException("cannot load " + algorithm, ex);
+		}
+	}
+
+	/**
+	 * Return a handle on the (w,h,seed) constructor of the given algorithm,
+	 * which carves the maze, of type (int,int,long)Object.
+	 */
+	public static MethodHandle constructor(String algorithm) {
+		Class<?> cls = load(algorithm);
+		try {
+			return MethodHandles.publicLookup()
+				.findConstructor(cls, MethodType.methodType(void.class, int.class, int.class, long.class))
+				.asType(MethodType.methodType(Object.class, int.class, int.class, long.class));
+		} catch ( ReflectiveOperationException ex ) {
+			throw new IllegalStateException("no (w,h,seed) constructor in " + algorithm, ex);
+		}
+	}
+
+	/**
+	 * Build a Solver (see maze-01) for the given maze, carved by the given algorithm.
+	 */
+	public static Object solver(String algorithm, Object maze) throws Throwable {
+		ClassLoader loader = loader(directory(algorithm));
+		Class<?> solver = Class.forName("Solver", true, loader);
+		Class<?> mazeClass = Class.forName("Maze", true, loader);
+		return MethodHandles.publicLookup()
+			.findConstructor(solver, MethodType.methodType(void.class, mazeClass))
+			.invoke(maze);
+	}
+
+	/**
+	 * Return a handle on one of the searches of a Solver ("bfs", "bidirectional",
+	 * "astar" or "deadEndFill"), or on its multi-source "distances" from two cells,
+	 * of type (Object,int,int)Object.
+	 */
+	public static MethodHandle solve(Object solver, String method) {
+		try {
+			MethodHandle handle;
+			if ( method.equals("distances") ) {
+				handle = MethodHandles.publicLookup()
+					.findVirtual(solver.getClass(), method, MethodType.methodType(int[].class, int[].class))
+					.asCollector(int[].class, 2);
+			} else {
+				handle = MethodHandles.publicLookup()
+					.findVirtual(solver.getClass(), method, MethodType.methodType(int[].class, int.class, int.class));
+			}
+			return handle.asType(MethodType.methodType(Object.class, Object.class, int.class, int.class));
+		} catch ( ReflectiveOperationException ex ) {
+			throw new IllegalStateException("no solver method " + method, ex);
+		}
+	}
+
+	/**
+	 * Return a handle on the draw() method of the given algorithm, of type (Object)void.
+	 */
+	public static MethodHandle draw(String algorithm) {
+		return method(algorithm, "draw", MethodType.methodType(void.class));
+	}
+
+	/**
+	 * Send everything the maze draws to the given stream.
+	 */
+	public static void setOutput(String algorithm, Object maze, OutputStream out) throws Throwable {
+		method(algorithm, "setOutput", MethodType.methodType(void.class, OutputStream.class)).invoke(maze, out);
+	}
+
+	/**
+	 * Have the generators of the given algorithm draw from the named kind of
+	 * RandomSource ("lcg", "splittable" or "xoshiro").
+	 */
+	public static void setRandom(String algorithm, String name) throws Throwable {
+		Class<?> cls = Class.forName("RandomSource", true, loader(directory(algorithm)));
+		MethodHandles.publicLookup()
+			.findStatic(cls, "setDefault", MethodType.methodType(void.class, String.class))
+			.invoke(name);
+	}
+
+	/**
+	 * Have the generators of the given algorithm carve into grids of the named
+	 * layout ("rows" or "morton", see Grid.setLayout).
+	 */
+	public static void setLayout(String algorithm, String layout) throws Throwable {
+		Class<?> cls = Class.forName("Grid", true, loader(directory(algorithm)));
+		MethodHandles.publicLookup()
+			.findStatic(cls, "setLayout", MethodType.methodType(void.class, String.class))
+			.invoke(layout);
+	}
+
+	private static MethodHandle method(String algorithm, String name, MethodType type) {
+		Class<?> cls = load(algorithm);
+		try {
+			MethodHandle handle = MethodHandles.publicLookup().findVirtual(cls, name, type);
+			return handle.asType(handle.type().changeParameterType(0, Object.class));
+		} catch ( ReflectiveOperationException ex ) {
+			throw new IllegalStateException("no " + name + type + " in " + algorithm, ex);
+		}
+	}
+
+	private static ClassLoader loader(String directory) {
+		return LOADERS.computeIfAbsent(directory, dir -> {
+			// locate the directory by a class we know is in it (works in a jar, too)
+			URL maze = Mazes.class.getResource("/" + dir + "/Maze.class");
+			if ( maze == null ) {
+				throw new IllegalStateException(dir + " has not been compiled: build with \"mvn package\"");
+			}
+			String url = maze.toString();
+			try {
+				URL root = new URL(url.substring(0, url.length() - "Maze.class".length()));
+				return new URLClassLoader(new URL[] { root }, Mazes.class.getClassLoader());
+			} catch ( MalformedURLException ex ) {
+				throw new IllegalStateException(ex);
+			}
+		});
+	}
+}
@@ -0,0 +1,55 @@
+package mazes.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time the maze solvers against each other, each finding the path from
+ * the top-left to the bottom-right corner of the same carved maze (or,
+ * for "distances", the distance of every cell from the nearer corner).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SolverBenchmark {
+
+	// Only maze-01 has a Solver
+	@Param({ "BackTracker" })
+	public String algorithm;
+
+	@Param({ "bfs", "bidirectional", "astar", "deadEndFill", "distances" })
+	public String solver;
+
+	@Param({ "100", "1000", "4096" })
+	public int size;
+
+	private Object _solver;
+	private MethodHandle _solve;
+
+	@Setup
+	public void setup() throws Throwable {
+		Object maze = (Object) Mazes.constructor(algorithm).invokeExact(size, size, 1L);
+		_solver = Mazes.solver(algorithm, maze);
+		_solve = Mazes.solve(_solver, solver);
+	}
+
+	@Benchmark
+	public Object solve() throws Throwable {
+		return (Object) _solve.invokeExact(_solver, 0, size * size - 1);
+	}
+}
@@ -0,0 +1,272 @@
+/***********************************************************************
+ * Class Analyzer grades a maze, by measuring
+ *
+ * - how many cells are dead ends (one way in), and the histogram of the
+ *   number of ways out of every cell (0 to 4, so junctions have 3 or 4);
+ * - the distribution of corridor lengths, where a corridor is a run of
+ *   passages between two cells which are not simply on the way through
+ *   (dead ends and junctions), counted in power-of-two buckets;
+ * - the "river" factor: the mean length of the dead-end corridors (those
+ *   with a dead end at one end or both). A maze which "flows" like a river
+ *   has few, long dead ends, and so a high river factor; one with a low
+ *   river factor is full of short dead ends, which are easy to rule out;
+ * - the diameter: the longest shortest path between any two cells, and
+ *   its two ends, found by a double BFS (the cell farthest from any cell
+ *   is one end of a longest path, and the cell farthest from that is the
+ *   other). This is exact for a perfect maze; with loops it is a lower
+ *   bound. On a grid which is not connected (a window of a World, say)
+ *   it is measured within the part holding the top left cell.
+ *
+ * The per-cell passes run in parallel over bands of BAND_HEIGHT rows on
+ * a ForkJoinPool, each band counting into its own Counts, which are then
+ * added up. A corridor is walked (across bands, if it needs to) from the
+ * cell at either end, and counted from the lower-numbered one.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Analyzer {
+	// Define class variables
+	public static final int BAND_HEIGHT = 64;
+	private static final int WALLS = Maze.N | Maze.S | Maze.E | Maze.W;
+	private static final int BUCKETS = 32;
+
+	// Define instance variables
+	private Grid _grid = null;
+	private int _w = 0;
+	private int _h = 0;
+	private Counts _counts = null;
+
+	private int _diameter = 0;
+	private int _start = 0;
+	private int _end = 0;
+
+	/**
+	 * Analyze the maze drawn on the given grid, on the common ForkJoinPool (or the given one).
+	 */
+	public Analyzer(Maze maze) {
+		this(maze._grid);
+	}
+	public Analyzer(Grid grid) {
+		this(grid, ForkJoinPool.commonPool());
+	}
+	public Analyzer(Grid grid,ForkJoinPool pool) {
+		_grid = grid;
+		_w = grid.width();
+		_h = grid.height();
+		_counts = pool.invoke(new Bands(0, (_h + BAND_HEIGHT - 1) / BAND_HEIGHT));
+		measureDiameter();
+	}
+
+	public long cells() {
+		return (long)_w * _h;
+	}
+
+	/**
+	 * Return the number of cells with exactly one way in.
+	 */
+	public long deadEnds() {
+		return _counts._degrees[1];
+	}
+
+	/**
+	 * Return the number of cells with three or four ways out.
+	 */
+	public long junctions() {
+		return _counts._degrees[3] + _counts._degrees[4];
+	}
+
+	/**
+	 * Return the number of cells with 0, 1, 2, 3 and 4 ways out.
+	 */
+	public long[] degrees() {
+		return _counts._degrees.clone();
+	}
+
+	/**
+	 * Return the number of corridors whose length (in steps) lies in [2^k, 2^(k+1)), for each k.
+	 */
+	public long[] corridorLengths() {
+		return _counts._lengths.clone();
+	}
+
+	public long corridors() 	{ return _counts._corridors; }
+	public long longestCorridor() 	{ return _counts._longest; }
+
+	public double meanCorridor() {
+		return ( _counts._corridors > 0 ) ? (double)_counts._steps / _counts._corridors : 0.0;
+	}
+
+	/**
+	 * Return the mean length of the corridors ending in a dead end.
+	 */
+	public double river() {
+		return ( _counts._deadEndCorridors > 0 ) ? (double)_counts._deadEndSteps / _counts._deadEndCorridors : 0.0;
+	}
+
+	/**
+	 * Return the length (in steps) of the longest path, and the cells at its two ends.
+	 */
+	public int diameter() 		{ return _diameter; }
+	public int diameterStart() 	{ return _start; }
+	public int diameterEnd() 	{ return _end; }
+
+	/**
+	 * Return a report of the analysis, one measure per line.
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		long[] degrees = _counts._degrees;
+		sb.append("cells: ").append(cells()).append('\n');
+		sb.append("dead ends: ").append(deadEnds())
+		  .append(String.format(" (%.1f%%)", 100.0 * deadEnds() / Math.max(1, cells()))).append('\n');
+		sb.append("ways out: ");
+		for ( int d=0; d < degrees.length; ++d ) {
+			sb.append(d > 0 ? ", " : "").append(d).append(':').append(degrees[d]);
+		}
+		sb.append('\n');
+		sb.append("corridors: ").append(corridors())
+		  .append(String.format(", mean length %.2f, longest %d", meanCorridor(), longestCorridor())).append('\n');
+		sb.append("corridor lengths:");
+		for ( int k=0; k < BUCKETS; ++k ) {
+			if ( _counts._lengths[k] > 0 ) {
+				sb.append(' ').append(1L << k).append('-').append((1L << (k+1)) - 1).append(':').append(_counts._lengths[k]);
+			}
+		}
+		sb.append('\n');
+		sb.append(String.format("river: %.2f", river())).append('\n');
+		sb.append("diameter: ").append(_diameter)
+		  .append(" from (").append(_start % _w).append(',').append(_start / _w)
+		  .append(") to (").append(_end % _w).append(',').append(_end / _w).append(')');
+		return sb.toString();
+	}
+
+	// Double BFS: the farthest cell from (0,0), and then the farthest cell from that one
+	private void measureDiameter() {
+		Solver solver = new Solver(_grid);
+		_start = farthest(solver.distances(0));
+		int[] distance = solver.distances(_start);
+		_end = farthest(distance);
+		_diameter = distance[_end];
+	}
+
+	private static int farthest(int[] distance) {
+		int best = 0;
+		for ( int i=1; i < distance.length; ++i ) {
+			if ( distance[i] > distance[best] ) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	// Count the cells, and the corridors starting from them, in the rows of band k
+	private Counts countBand(int k) {
+		Counts counts = new Counts();
+		int y0 = k * BAND_HEIGHT;
+		int y1 = Math.min(_h, y0 + BAND_HEIGHT);
+		for ( int y=y0; y < y1; ++y ) {
+			for ( int x=0; x < _w; ++x ) {
+				int walls = _grid.get(x,y) & WALLS;
+				int degree = Integer.bitCount(walls);
+				++counts._degrees[degree];
+				if ( degree == 2 ) {
+					continue;
+				}
+
+				// walk each corridor out of this cell to the cell at its far end
+				long start = (long)y*_w + x;
+				while ( walls != 0 ) {
+					int direction = walls & -walls;
+					walls ^= direction;
+					int cx = x + Maze.DX(direction), cy = y + Maze.DY(direction);
+					int last = direction;
+					long length = 1;
+					int through;
+					while ( Integer.bitCount(through = _grid.get(cx,cy) & WALLS) == 2 ) {
+						last = through & ~Maze.OPPOSITE(last);
+						cx += Maze.DX(last);
+						cy += Maze.DY(last);
+						++length;
+					}
+
+					// count it from the lower end (and, if it loops back, from one direction)
+					long end = (long)cy*_w + cx;
+					if ( start < end || ( start == end && direction < Maze.OPPOSITE(last) ) ) {
+						counts.corridor(length, degree == 1 || Integer.bitCount(through) == 1);
+					}
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * What one band counted (and, once added up, the whole maze).
+	 */
+	private static class Counts {
+		long[] _degrees = new long[5];
+		long[] _lengths = new long[BUCKETS];
+		long _corridors = 0;
+		long _steps = 0;
+		long _longest = 0;
+		long _deadEndCorridors = 0;
+		long _deadEndSteps = 0;
+
+		void corridor(long length,boolean deadEnd) {
+			++_lengths[63 - Long.numberOfLeadingZeros(length)];
+			++_corridors;
+			_steps += length;
+			_longest = Math.max(_longest, length);
+			if ( deadEnd ) {
+				++_deadEndCorridors;
+				_deadEndSteps += length;
+			}
+		}
+
+		Counts add(Counts other) {
+			for ( int i=0; i < _degrees.length; ++i ) {
+				_degrees[i] += other._degrees[i];
+			}
+			for ( int i=0; i < _lengths.length; ++i ) {
+				_lengths[i] += other._lengths[i];
+			}
+			_corridors += other._corridors;
+			_steps += other._steps;
+			_longest = Math.max(_longest, other._longest);
+			_deadEndCorridors += other._deadEndCorridors;
+			_deadEndSteps += other._deadEndSteps;
+			return this;
+		}
+	}
+
+	/**
+	 * Count the bands [from,to), splitting the range in half until only one band is left.
+	 */
+	@SuppressWarnings("serial")
+	private class Bands extends RecursiveTask<Counts> {
+		private int _from;
+		private int _to;
+
+		Bands(int from,int to) {
+			_from = from;
+			_to = to;
+		}
+
+		protected Counts compute() {
+			if ( _to - _from == 1 ) {
+				return countBand(_from);
+			} else if ( _to <= _from ) {
+				return new Counts();
+			}
+			int mid = (_from + _to) >>> 1;
+			Bands left = new Bands(_from, mid);
+			left.fork();
+			Counts right = new Bands(mid, _to).compute();
+			return right.add(left.join());
+		}
+	}
+}
@@ -13,6 +13,10 @@ public class BackTracker extends Maze {
     // Define instance variables
     private boolean _animate = false;
     private float _delay = 0.02f;
+    private boolean _spill = false;
+
+    // Directions in the order the shuffle starts from
+    private static final int[] DIRECTIONS = { Maze.N, Maze.S, Maze.E, Maze.W };
 
     /***************************************************************
      * Initialize a new 2D maze with the optional parameters.
@@ -26,17 +30,23 @@ public class BackTracker extends Maze {
     //
     public BackTracker() {
 	super();
-	carvePassageFrom(0,0);
 	initialize();
     }
     public BackTracker(int w,int h) {
 	super(w,h);
-	carvePassageFrom(0,0);
 	initialize();
     }
     public BackTracker(int w,int h,long seed) {
 	super(w,h,seed);
-	carvePassageFrom(0,0);
+	initialize();
+    }
+
+    //
+    // Carve into the given grid (e.g., a PagedGrid), spilling the stack to disk if need be
+    //
+    public BackTracker(Grid grid,long seed) {
+	super(grid,seed);
+	_spill = true;
 	initialize();
     }
 
@@ -63,13 +73,6 @@ public class BackTracker extends Maze {
 	}
     }
 	
-    //
-    // Override metadata to inform what type of maze we are carving.
-    //
-    protected String metadata() {
-	return super.metadata() + " [BackTracker]";
-    }
-
     /********************************************************************
      * Method only needs to be overridden if we are animating.
      *
@@ -77,116 +80,140 @@ public class BackTracker extends Maze {
      *******************************************************************/
     public void draw() {
 	// Clear the screen
-	System.out.print((char)27 + "[2J");
+	Renderer r = renderer();
+	r.clear();
 	if ( !_animate ) {
 	    // Move to upper left and defer to superclass
-	    System.out.print((char)27 + "[H");
+	    r.home();
 	    super.draw();
 	} else {
-	    // If we are animating, clear the screen and start carving:
+	    // If we are animating, clear the screen and start carving,
+	    // drawing as we go on the animator thread:
+	    startAnimation();
 	    carvePassageFrom(0,0);
+	    finishAnimation();
 
 	    // Output maze metadata
-	    System.out.println(metadata());
+	    r.println(metadata().text());
+	    r.flush();
 	}
     }
 
     /***************************************************************************************
-     * Display needs the (x,y) coordinates of where it is presently rendering, in 
-     * order to color the "Current cursor" cell a different color (in this case, 
-     * red). We've already used the symbols "x" and "y" in a previous implementation
-     * of this algorithm, so we'll name them "i" and "j" in the method signature instead.
+     * Carve the maze (when animating, without drawing it).
      ***************************************************************************************/
-    private void display(int i,int j) {
-	// Draw the "top row" of the maze
-	System.out.print((char)27 + "[H");
-	System.out.print(" ");
-	for ( int c=0; c < (_w*2) - 1; ++c ) {
-	    System.out.print("_");
-	}
-	System.out.println("");
-
-	// Step through the cells of the maze
-	for ( int y=0; y < _grid.length; ++y ) {
-	    System.out.print("|");
-	    for ( int x=0; x < _grid[0].length; ++x ) {
-		// Color gray if empty, red if "current" cursor
-		if ( _grid[y][x] == 0 ) {
-		    System.out.print((char)27 + "[47m");
-		} else if ( x == i && y == j ) {
-		    System.out.print((char)27 + "[41m");
-		}
-
-		// Render "bottom" using the "S" switch
-		System.out.print((_grid[y][x] & Maze.S) != 0 ? " " : "_");
-
-		// Render "side" using "E" switch
-		if ( (_grid[y][x] & Maze.E) != 0 ) {
-		    System.out.print(((_grid[y][x] | _grid[y][x+1]) & Maze.S) != 0 ? " " : "_");
-		} else {
-		    System.out.print("|");
-		}
+    public void generate() {
+	carvePassageFrom(0,0);
+    }
 
-		// Stop coloring
-		if ( _grid[y][x] == 0 || ( x == i && y == j ) ) {
-		    System.out.print((char)27 + "[m");
+    /***************************************************************************************
+     * When animating, color gray if empty, red if "current" cursor.
+     ***************************************************************************************/
+    protected Renderer createRenderer() {
+	return new Renderer(_grid,output()) {
+	    protected int color(int x,int y) {
+		if ( !_animate ) {
+		    return 0;
+		} else if ( cell(x,y) == 0 ) {
+		    return Renderer.GRAY;
+		} else if ( x == _cursorX && y == _cursorY ) {
+		    return Renderer.RED;
 		}
+		return 0;
 	    }
-	    System.out.println("");
-	}
+	};
     }
 
-    // Define maze-carving algorithm 
+    /***************************************************************************************
+     * Carve the maze using an explicit stack rather than the call stack.
+     *
+     * Each stack frame is a packed 13-bit "state": the low 8 bits hold the four shuffled
+     * directions (2 bits each, indexing DIRECTIONS), the next 3 bits count how many of
+     * those directions have already been tried, and the 2 bits above those hold the
+     * direction we came into the cell by. Rather than storing each cell, we keep track of
+     * where we are, and step back the way we came when a frame is popped: so the stack
+     * takes 2 bytes per frame (see FrameStack). Frames are pushed in exactly the order
+     * the recursive version made its calls, and directions are shuffled (with the same
+     * calls to _random) when a frame is pushed, so a given seed produces the same maze
+     * as the old recursive implementation.
+     *
+     * The walk may go as deep as there are cells, so the size of the maze is bounded by
+     * the heap rather than by the thread stack (-Xss). Carving into a given grid (e.g., a
+     * PagedGrid), the stack holds only FrameStack.DEFAULT_MEMORY bytes of frames in memory,
+     * and spills the rest to disk, so a maze may even have more than 2^31 cells.
+     ***************************************************************************************/
     private void carvePassageFrom(int x,int y) {
-	// construct and shuffle the directions array 
-	int[] directions = new int[4];
-	directions[0] = Maze.N;
-	directions[1] = Maze.S;
-	directions[2] = Maze.E;
-	directions[3] = Maze.W;
-	shuffle(directions);
+	FrameStack stack = _spill ? new FrameStack(FrameStack.DEFAULT_MEMORY, null) : new FrameStack();
+	generating();
+	stack.push(shuffle());
+
+	while ( !stack.isEmpty() ) {
+	    int state = stack.peek();
+	    int i = (state >>> 8) & 7;
+
+	    //
+	    // All four directions tried: clear the "current cursor" (so the last
+	    // cell is drawn without it) and back up to the previous cell.
+	    //
+	    if ( i == 4 ) {
+		if ( _animate ) {
+		    cursor(-1,-1);
+		}
+		int from = DIRECTIONS[(state >>> 11) & 3];
+		x -= Maze.DX(from);
+		y -= Maze.DY(from);
+		stack.pop();
+		continue;
+	    }
+	    stack.replace(state + 0x100);
 
-	for ( int i=0; i < 4; ++i ) {
 	    // 
-	    // Render updates of the maze on a "cell-by-cell" basis
+	    // Move the "current cursor" (colored red) on a "cell-by-cell" basis
 	    //
 	    if ( _animate ) {
-		display(x,y);
+		cursor(x,y);
+	    }
+	    if ( _animate && _delay > 0 ) {
 		try {
 		    Thread.sleep((long)(_delay*1000));
 		} catch ( Exception ex ) {
 		    ex.printStackTrace();
 		}
 	    }
-	    
-	    int direction = directions[i];
+
+	    int code = (state >>> (i*2)) & 3;
+	    int direction = DIRECTIONS[code];
 	    int dx = x + Maze.DX(direction);
 	    int dy = y + Maze.DY(direction);
 	    if ( ( dy >= 0 && dy <= (_h-1) ) &&
 		 ( dx >= 0 && dx <= (_w-1) ) &&
-		 ( _grid[dy][dx] == 0 ) ) {
-		_grid[y][x] |= direction;
-		_grid[dy][dx] |= Maze.OPPOSITE(direction);
-		carvePassageFrom(dx,dy);
-	    }
-	}
+		 ( cell(dx,dy) == 0 ) ) {
+		carve(x,y,direction);
 
-	//
-	// Make one final call to "update" to display last cell.
-	// Set the coords to (-1,-1) so the cell is left "blank" with no cursor.
-	//
-	if ( _animate ) {
-	    display(-1,-1);
+		// "recurse" by pushing a new frame
+		stack.push(shuffle() | (code << 11));
+		x = dx;
+		y = dy;
+	    }
 	}
+	stack.close();
+	generated();
     }
-	
-    // randomly shuffle the _directions array
-    private void shuffle(int[] args) {
-	for ( int i=0; i < args.length; ++i ) {
-	    int pos = _random.nextInt(args.length);
-	    int tmp = args[i];
-	    args[i] = args[pos];
-	    args[pos] = tmp;
+
+    /***************************************************************************************
+     * Randomly shuffle the directions N, S, E, W (in that starting order), returning them
+     * packed 2 bits apiece into the low 8 bits of an int. The swaps (and the calls made to
+     * _random) are identical to those of the original int[] shuffle.
+     ***************************************************************************************/
+    private int shuffle() {
+	int packed = 0 | (1 << 2) | (2 << 4) | (3 << 6);
+	for ( int i=0; i < 4; ++i ) {
+	    int pos = _random.nextInt(4);
+	    int a = (packed >>> (i*2)) & 3;
+	    int b = (packed >>> (pos*2)) & 3;
+	    packed &= ~((3 << (i*2)) | (3 << (pos*2)));
+	    packed |= (b << (i*2)) | (a << (pos*2));
 	}
+	return packed;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+/***********************************************************************
+ * Class DisjointSet implements a "union-find" structure, which we use
+ * in ParallelBackTracker to keep track of which regions of the maze have
+ * already been joined together.
+ *
+ * Each region is identified by its number. Rather than one object per
+ * region, the forest is held in two flat arrays: the parent of each
+ * region, and the rank (an upper bound on the height) of each root.
+ *
+ * Roots are found iteratively with path halving, and the shorter tree
+ * is always hung under the taller (union by rank), so that any series
+ * of operations runs in near-linear time without deep recursion.
+ *
+ * @author psholtz
+ **********************************************************************/
+public class DisjointSet {
+	// Define instance variables
+	private int[] _parent = null;
+	private byte[] _rank = null;
+	private int _count = 0;
+
+	/**
+	 * Build n singleton sets, numbered 0 through n-1.
+	 */
+	public DisjointSet(int n) {
+		_parent = new int[n];
+		_rank = new byte[n];
+		for ( int i=0; i < n; ++i ) {
+			_parent[i] = i;
+		}
+		_count = n;
+	}
+
+	/**
+	 * Return the root of the set containing element i.
+	 */
+	public int find(int i) {
+		while ( _parent[i] != i ) {
+			// point i at its grandparent as we go (path halving)
+			_parent[i] = _parent[_parent[i]];
+			i = _parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Are elements i and j in the same set?
+	 */
+	public boolean connected(int i,int j) {
+		return find(i) == find(j);
+	}
+
+	/**
+	 * Join the sets containing elements i and j.
+	 *
+	 * @return true if the sets were disjoint (and so have now been joined),
+	 *         false if i and j were already connected.
+	 */
+	public boolean union(int i,int j) {
+		int a = find(i);
+		int b = find(j);
+		if ( a == b ) {
+			return false;
+		}
+
+		// hang the shorter tree under the taller one
+		if ( _rank[a] < _rank[b] ) {
+			_parent[a] = b;
+		} else if ( _rank[a] > _rank[b] ) {
+			_parent[b] = a;
+		} else {
+			_parent[b] = a;
+			_rank[a]++;
+		}
+		--_count;
+		return true;
+	}
+
+	/**
+	 * Return the number of disjoint sets remaining.
+	 */
+	public int count() {
+		return _count;
+	}
+}
@@ -6,8 +6,13 @@
  * 
  * @author psholtz
  ******************************************************************/
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
 public class Driver {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		// configure the width and height
 		int w = Maze.DEFAULT_WIDTH;
 		int h = Maze.DEFAULT_HEIGHT;
@@ -15,6 +20,21 @@ public class Driver {
 		boolean useSeed = false;
 		boolean animate = false;
 		float delay = 0.02f;
+		int fps = Animator.DEFAULT_FRAME_RATE;
+		String log = null;
+		long count = 0L;
+		String output = null;
+		int threads = 0;
+		int frames = 0;
+		int tile = PagedGrid.DEFAULT_TILE_SIZE;
+		boolean json = false;
+		boolean grade = false;
+		boolean world = false;
+		long wx = 0L;
+		long wy = 0L;
+		String save = null;
+		String load = null;
+		int regions = 0;
 		
 		// ignore arguments that we don't understand
 		for ( int i=0; i < args.length; ++i ) {
@@ -35,9 +55,48 @@ public class Driver {
 						useSeed = true; 
 						seed = Long.parseLong(arg.substring(2));
 					}
+					else if ( t.equals("r") ) {
+						RandomSource.setDefault(arg.substring(2));
+					}
 					else if ( t.equals("d") ) {
 					    delay = Float.parseFloat(arg.substring(2));
 					}
+					else if ( t.equals("f") ) {
+						fps = Integer.parseInt(arg.substring(2));
+					}
+					else if ( t.equals("l") ) {
+						log = arg.substring(2);
+					}
+					else if ( t.equals("n") ) {
+						count = Long.parseLong(arg.substring(2));
+					}
+					else if ( t.equals("o") ) {
+						output = arg.substring(2);
+					}
+					else if ( t.equals("j") ) {
+						threads = Integer.parseInt(arg.substring(2));
+					}
+					else if ( t.equals("p") ) {
+						frames = Integer.parseInt(arg.substring(2));
+					}
+					else if ( t.equals("t") ) {
+						tile = Integer.parseInt(arg.substring(2));
+					}
+					else if ( t.equals("X") ) {
+						wx = Long.parseLong(arg.substring(2));
+					}
+					else if ( t.equals("Y") ) {
+						wy = Long.parseLong(arg.substring(2));
+					}
+					else if ( t.equals("b") ) {
+						save = arg.substring(2);
+					}
+					else if ( t.equals("i") ) {
+						load = arg.substring(2);
+					}
+					else if ( t.equals("R") ) {
+						regions = Integer.parseInt(arg.substring(2));
+					}
 				}
 			}
 
@@ -49,15 +108,152 @@ public class Driver {
 				if ( t.equals("a") ) {
 				    animate = true;
 				}
+				else if ( t.equals("z") ) {
+				    Grid.setLayout(Grid.MORTON);
+				}
+				else if ( t.equals("m") ) {
+				    json = true;
+				}
+				else if ( t.equals("g") ) {
+				    grade = true;
+				}
+				else if ( t.equals("c") ) {
+				    world = true;
+				}
 			    }
 			}
 		}
 		
+		// generate a batch of mazes, one for each of count seeds (starting at the given seed)
+		if ( count > 0 ) {
+			final int bw = w, bh = h;
+			Batch batch = new Batch(new Batch.Generator() {
+				public Maze generate(long seed) {
+					return new BackTracker(bw,bh,seed);
+				}
+			}, seed, count, threads);
+			batch.setJson(json);
+			batch.run(output);
+			return;
+		}
+
+		// draw (or grade) the w x h window at (X,Y) of the unbounded, chunked maze (see World)
+		if ( world ) {
+			if ( !useSeed ) {
+				seed = RandomSource.create().nextLong();
+			}
+			World tiles = new World(seed);
+			Grid window = tiles.window(wx,wy,w,h);
+			if ( grade ) {
+				// grade the window, and solve it from corner to corner (if they are connected in it)
+				System.out.println("world: " + seed + " window (" + wx + "," + wy + ") " + w + " " + h);
+				System.out.println(new Analyzer(window));
+				Solver solver = new Solver(window);
+				int[] path = solver.bfs(solver.cell(0,0), solver.cell(w-1,h-1));
+				System.out.println(( path != null ) ? "path: " + path.length + " cells, corner to corner" : "path: corners not connected in the window");
+				System.out.println(tiles.stats());
+				return;
+			}
+			Renderer r = new Renderer(window);
+			r.clear();
+			r.home();
+			r.rows();
+			r.println("world: " + seed + " window (" + wx + "," + wy + ") " + w + " " + h + ", " + tiles.stats());
+			r.flush();
+			return;
+		}
+
+		// carve the maze on a PagedGrid, holding only (frames) of its tiles in memory
+		if ( frames > 0 ) {
+			if ( !useSeed ) {
+				seed = RandomSource.create().nextLong();
+			}
+			PagedGrid grid = new PagedGrid(w,h,tile,frames);
+			Maze maze = new BackTracker(grid,seed);
+			System.out.println(maze.metadata().text());
+			System.out.println(grid.stats());
+			if ( save != null ) {
+				MappedMaze.save(maze, new File(save)).close();
+				System.out.println("saved " + maze.metadata().cells() + " cells to " + save);
+			}
+			grid.close();
+			return;
+		}
+
+		// open a maze saved with -b (see MappedMaze), and draw or grade it
+		if ( load != null ) {
+			MappedMaze maze = MappedMaze.open(new File(load));
+			if ( grade ) {
+				System.out.println(maze.metadata().text());
+				System.out.println(new Analyzer(maze));
+			} else {
+				maze.draw();
+			}
+			maze.close();
+			return;
+		}
+
+		// save the maze to a file (see MappedGrid), rather than drawing it
+		if ( save != null ) {
+			Maze maze = carve(w,h,useSeed,seed,regions);
+			MappedMaze saved = MappedMaze.save(maze, new File(save));
+			saved.close();
+			System.out.println(maze.metadata().text());
+			System.out.println("saved " + maze.metadata().cells() + " cells to " + save + " (" + saved.file().length() + " bytes)");
+			return;
+		}
+
+		// grade the maze (see Analyzer), rather than drawing it
+		if ( grade ) {
+			Maze maze = carve(w,h,useSeed,seed,regions);
+			System.out.println(maze.metadata().text());
+			System.out.println(new Analyzer(maze));
+			return;
+		}
+
+		// carve on all cores (the parallel version does not animate)
+		if ( regions > 0 ) {
+			carve(w,h,useSeed,seed,regions).draw();
+			return;
+		}
+
 		// render the maze
-		if ( useSeed ) {
-		    new BackTracker(w,h,animate,delay,seed).draw();
+		boolean defer = animate || log != null;
+		float pause = animate ? delay : 0.0f;
+		Maze maze = useSeed ? new BackTracker(w,h,defer,pause,seed) : new BackTracker(w,h,defer,pause);
+		maze.setFrameRate(fps);
+		render(maze,log,animate,w,h);
+	}
+
+	/****************************************************************
+	 * Carve a w x h maze (without drawing it): with BackTracker, or,
+	 * given a number of regions, with ParallelBackTracker.
+	 ***************************************************************/
+	private static Maze carve(int w,int h,boolean useSeed,long seed,int regions) {
+		if ( regions > 0 ) {
+			return useSeed ? new ParallelBackTracker(w,h,seed,regions) : new ParallelBackTracker(w,h,RandomSource.create().nextLong(),regions);
+		}
+		return useSeed ? new BackTracker(w,h,seed) : new BackTracker(w,h);
+	}
+
+	/****************************************************************
+	 * Draw the maze, or, if given a log file, record how it is carved
+	 * (see Replay). A maze built to animate puts off carving until it
+	 * is drawn, so it can be recorded before it carves anything.
+	 ***************************************************************/
+	private static void render(Maze maze,String log,boolean animate,int w,int h) throws IOException {
+		if ( log == null ) {
+			maze.draw();
+			return;
+		}
+		CarveLog carveLog = new CarveLog(new FileOutputStream(log), w, h);
+		maze.record(carveLog);
+		if ( animate ) {
+			maze.draw();
 		} else {
-		    new BackTracker(w,h,animate,delay).draw();
+			maze.generate();
 		}
+		carveLog.close();
+		System.out.println("recorded " + carveLog.steps() + " steps to " + log);
 	}
-}
\ No newline at end of file
+}
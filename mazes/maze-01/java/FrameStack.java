@@ -0,0 +1,201 @@
+/***********************************************************************
+ * Class FrameStack is a stack of 16-bit frames (e.g., the packed states
+ * of BackTracker's walk) which can grow larger than the heap.
+ *
+ * Frames are kept in blocks of 2^BLOCK_SHIFT. Only the top blocks, up
+ * to a memory budget, are held in memory: pushing past the budget
+ * writes the bottom block held out to a scratch file ("spills" it), and
+ * popping down past the blocks held reads the one below back in. A
+ * stack is only ever used at its top, so once a block is spilled it is
+ * not needed again until everything above it has been popped, and the
+ * budget (at least two blocks) keeps a walk which goes back and forth
+ * across the edge of a block from reading and writing it each time.
+ *
+ * With no budget the stack never spills, and is simply a growable
+ * array of 2 bytes per frame. The scratch file, if one was needed, is
+ * deleted on close().
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+public class FrameStack implements Closeable {
+	// Define class variables
+	public static final int BLOCK_SHIFT = 16;
+	public static final long DEFAULT_MEMORY = 16L << 20;
+
+	private static final int BLOCK = 1 << BLOCK_SHIFT;
+	private static final int MASK = BLOCK - 1;
+
+	// Define instance variables
+	private int _limit = 0;				// most blocks held in memory
+	private char[][] _blocks = new char[4][];	// _blocks[k] holds block _bottom + k
+	private long _bottom = 0L;			// blocks below this one are in the file
+	private long _size = 0L;
+
+	private File _directory = null;
+	private File _file = null;
+	private RandomAccessFile _raf = null;
+	private FileChannel _channel = null;
+	private ByteBuffer _io = null;
+
+	private long _reads = 0L;
+	private long _writes = 0L;
+
+	/**
+	 * Make an empty stack held wholly in memory, or one which holds (about)
+	 * the given number of bytes of frames in memory and spills the rest to
+	 * a scratch file in the given directory (or the default temporary one).
+	 */
+	public FrameStack() {
+		_limit = Integer.MAX_VALUE;
+	}
+	public FrameStack(long memory,File directory) {
+		_limit = (int)Math.max(2L, Math.min(Integer.MAX_VALUE, memory / (2L * BLOCK)));
+		_directory = directory;
+	}
+
+	public long size() { return _size; }
+	public boolean isEmpty() { return _size == 0L; }
+
+	/**
+	 * Return the number of blocks read back from, and written out to, the scratch file.
+	 */
+	public long reads() 	{ return _reads; }
+	public long writes() 	{ return _writes; }
+
+	/**
+	 * Push a frame (only its low 16 bits are kept).
+	 */
+	public void push(int frame) {
+		int k = slot(_size);
+		if ( k == _limit ) {
+			spill();
+			--k;
+		}
+		if ( k == _blocks.length ) {
+			_blocks = Arrays.copyOf(_blocks, (int)Math.min(2L * k, _limit));
+		}
+		if ( _blocks[k] == null ) {
+			_blocks[k] = new char[BLOCK];
+		}
+		_blocks[k][(int)_size & MASK] = (char)frame;
+		++_size;
+	}
+
+	/**
+	 * Remove, and return, the frame on top of the stack.
+	 */
+	public int pop() {
+		int frame = peek();
+		--_size;
+		return frame;
+	}
+
+	/**
+	 * Return (or replace) the frame on top of the stack.
+	 */
+	public int peek() {
+		if ( _size == 0L ) {
+			throw new EmptyStackException();
+		}
+		return _blocks[slot(_size - 1)][(int)(_size - 1) & MASK];
+	}
+
+	public void replace(int frame) {
+		if ( _size == 0L ) {
+			throw new EmptyStackException();
+		}
+		_blocks[slot(_size - 1)][(int)(_size - 1) & MASK] = (char)frame;
+	}
+
+	/**
+	 * Close, and delete, the scratch file (if the stack ever spilled).
+	 */
+	public void close() {
+		if ( _raf != null ) {
+			try {
+				_raf.close();
+			} catch ( IOException e ) {
+				throw new UncheckedIOException(e);
+			} finally {
+				_file.delete();
+				_raf = null;
+			}
+		}
+	}
+
+	// The slot in _blocks of frame i's block, reading the block back in if it was spilled
+	private int slot(long i) {
+		long b = i >>> BLOCK_SHIFT;
+		if ( b < _bottom ) {
+			load();
+		}
+		return (int)(b - _bottom);
+	}
+
+	// Write the bottom block held out to the file, and reuse its array at the top
+	private void spill() {
+		char[] block = _blocks[0];
+		if ( _raf == null ) {
+			try {
+				_file = File.createTempFile("maze", ".stack", _directory);
+				_file.deleteOnExit();
+				_raf = new RandomAccessFile(_file, "rw");
+			} catch ( IOException e ) {
+				throw new UncheckedIOException(e);
+			}
+			_channel = _raf.getChannel();
+			_io = ByteBuffer.allocateDirect(2 * BLOCK);
+		}
+		_io.clear();
+		_io.asCharBuffer().put(block);
+		transfer(_bottom, true);
+		++_writes;
+
+		System.arraycopy(_blocks, 1, _blocks, 0, _blocks.length - 1);
+		_blocks[_blocks.length - 1] = block;
+		++_bottom;
+	}
+
+	// Read the block below those held back in (every block held is then empty, so free to reuse)
+	private void load() {
+		char[] block = _blocks[_blocks.length - 1];
+		System.arraycopy(_blocks, 0, _blocks, 1, _blocks.length - 1);
+		if ( block == null ) {
+			block = new char[BLOCK];
+		}
+		--_bottom;
+		_io.clear();
+		transfer(_bottom, false);
+		_io.flip();
+		_io.asCharBuffer().get(block);
+		_blocks[0] = block;
+		++_reads;
+	}
+
+	// Write (or read) the whole of _io to (or from) the block's place in the file
+	private void transfer(long b,boolean write) {
+		long position = b * _io.capacity();
+		try {
+			while ( _io.hasRemaining() ) {
+				int n = write ? _channel.write(_io, position) : _channel.read(_io, position);
+				if ( n < 0 ) {
+					throw new IOException("scratch file truncated: " + _file);
+				}
+				position += n;
+			}
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/***********************************************************************
+ * Class MappedGrid is a Grid whose cells live in a file, mapped into
+ * memory, rather than on the heap: opening even a 16 GB maze only maps
+ * the file, and the operating system pages cells in as they are read.
+ *
+ * The file starts with a 64-byte header (all numbers big-endian):
+ *
+ *     0   magic number "MZMP"
+ *     4   format version
+ *     8   width
+ *     12  height
+ *     16  flags (bit 0 set if the maze was seeded)
+ *     20  (reserved, 0)
+ *     24  seed
+ *     32  number of passages carved
+ *     40  length of the algorithm name, then the name (ASCII, up to 23 bytes)
+ *
+ * and the cells follow, row by row with no padding, two to a byte: cell
+ * y*width + x is the low nibble of its byte if x is even, the high one
+ * if odd. So a maze takes half a byte per cell, against the two or so
+ * bytes per cell of drawing it in ASCII.
+ *
+ * A single MappedByteBuffer covers at most 2 GB, so the cells are mapped
+ * in segments of 1 GB, and a cell never spans two of them.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+public class MappedGrid extends Grid implements Closeable {
+	// Define class variables
+	public static final int MAGIC = 0x4D5A4D50;	// "MZMP"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 64;
+	public static final int NAME_SIZE = 23;
+
+	private static final int SEEDED = 1;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+	// Define instance variables
+	private File _file = null;
+	private FileChannel _channel = null;
+	private boolean _writable = false;
+	private MappedByteBuffer _header = null;
+	private MappedByteBuffer[] _segments = null;
+
+	/**
+	 * Create a file for an (empty) w x h maze, and map it for writing.
+	 */
+	public static MappedGrid create(File file,int w,int h) throws IOException {
+		if ( w < 1 || h < 1 ) {
+			throw new IllegalArgumentException("maze must have cells: " + w + "x" + h);
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			// every cell starts out 0, so we need only size the file (sparsely, where we can)
+			raf.setLength(0);
+			raf.setLength(HEADER_SIZE + bytes(w,h));
+			MappedGrid grid = new MappedGrid(file, raf.getChannel(), true, w, h);
+			grid._header.putInt(0, MAGIC);
+			grid._header.putInt(4, VERSION);
+			grid._header.putInt(8, w);
+			grid._header.putInt(12, h);
+			return grid;
+		} catch ( IOException | RuntimeException e ) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Map the maze in the given file, for reading only (or for writing too).
+	 */
+	public static MappedGrid open(File file) throws IOException {
+		return open(file, false);
+	}
+	public static MappedGrid open(File file,boolean writable) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+		try {
+			if ( raf.length() < HEADER_SIZE ) {
+				throw new IllegalArgumentException("not a maze file: " + file);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			raf.getChannel().read(header, 0);
+			if ( header.getInt(0) != MAGIC ) {
+				throw new IllegalArgumentException("not a maze file: " + file);
+			}
+			if ( header.getInt(4) != VERSION ) {
+				throw new IllegalArgumentException("unsupported maze file version: " + header.getInt(4));
+			}
+			int w = header.getInt(8), h = header.getInt(12);
+			if ( w < 1 || h < 1 || raf.length() < HEADER_SIZE + bytes(w,h) ) {
+				throw new IllegalArgumentException("maze file is truncated: " + file);
+			}
+			return new MappedGrid(file, raf.getChannel(), writable, w, h);
+		} catch ( IOException | RuntimeException e ) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	private MappedGrid(File file,FileChannel channel,boolean writable,int w,int h) throws IOException {
+		super(w,h,4,0L);
+		_file = file;
+		_channel = channel;
+		_writable = writable;
+
+		FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+		_header = channel.map(mode, 0, HEADER_SIZE);
+		long bytes = bytes(w,h);
+		_segments = new MappedByteBuffer[(int)((bytes + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+		for ( int k=0; k < _segments.length; ++k ) {
+			long offset = (long)k << SEGMENT_SHIFT;
+			_segments[k] = channel.map(mode, HEADER_SIZE + offset, Math.min(SEGMENT_SIZE, bytes - offset));
+		}
+	}
+
+	public File file() { return _file; }
+	public boolean writable() { return _writable; }
+
+	/**
+	 * Return the maze described in the header, as Metadata.
+	 */
+	public Metadata metadata() {
+		Long seed = ( (_header.getInt(16) & SEEDED) != 0 ) ? Long.valueOf(_header.getLong(24)) : null;
+		int length = Math.min(NAME_SIZE, _header.get(40) & 0xFF);
+		byte[] name = new byte[length];
+		for ( int i=0; i < length; ++i ) {
+			name[i] = _header.get(41 + i);
+		}
+		Metadata metadata = new Metadata(new String(name, StandardCharsets.US_ASCII), _w, _h, seed);
+		metadata.setEdges(_header.getLong(32));
+		return metadata;
+	}
+
+	/**
+	 * Write the algorithm, seed and number of passages of the maze into the header.
+	 */
+	public void describe(Metadata metadata) {
+		Long seed = metadata.seed();
+		_header.putInt(16, ( seed != null ) ? SEEDED : 0);
+		_header.putLong(24, ( seed != null ) ? seed.longValue() : 0L);
+		_header.putLong(32, metadata.edges());
+		byte[] name = metadata.algorithm().getBytes(StandardCharsets.US_ASCII);
+		int length = Math.min(NAME_SIZE, name.length);
+		_header.put(40, (byte)length);
+		for ( int i=0; i < NAME_SIZE; ++i ) {
+			_header.put(41 + i, ( i < length ) ? name[i] : 0);
+		}
+	}
+
+	/**
+	 * Reset every cell in the file to 0.
+	 */
+	public void clear() {
+		byte[] zeros = new byte[1 << 16];
+		for ( MappedByteBuffer segment : _segments ) {
+			ByteBuffer b = segment.duplicate();
+			b.clear();
+			while ( b.hasRemaining() ) {
+				b.put(zeros, 0, Math.min(zeros.length, b.remaining()));
+			}
+		}
+	}
+
+	/**
+	 * Return a copy of the cells, as they are laid out in the file, 8 bytes
+	 * to a long, which restore() can later copy back. It must fit in one
+	 * long[], so this is for mazes of up to (about) 2^34 cells.
+	 */
+	public long[] snapshot() {
+		long bytes = bytes(_w,_h);
+		if ( (bytes + 7) >>> 3 > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalStateException("grid too large to snapshot: " + bytes + " bytes");
+		}
+		long[] snapshot = new long[(int)((bytes + 7) >>> 3)];
+		int at = 0;
+		for ( MappedByteBuffer segment : _segments ) {
+			ByteBuffer b = segment.duplicate();
+			b.clear();
+			int words = b.remaining() >>> 3;
+			b.asLongBuffer().get(snapshot, at, words);
+			at += words;
+
+			// only the last segment can end part way through a long
+			b.position(words << 3);
+			for ( int shift=56; b.hasRemaining(); shift -= 8 ) {
+				snapshot[at] |= (b.get() & 0xFFL) << shift;
+			}
+		}
+		return snapshot;
+	}
+
+	public void restore(long[] snapshot) {
+		if ( snapshot.length != (bytes(_w,_h) + 7) >>> 3 ) {
+			throw new IllegalArgumentException("snapshot does not match grid: " + snapshot.length + " words");
+		}
+		int at = 0;
+		for ( MappedByteBuffer segment : _segments ) {
+			ByteBuffer b = segment.duplicate();
+			b.clear();
+			int words = b.remaining() >>> 3;
+			b.asLongBuffer().put(snapshot, at, words);
+			at += words;
+
+			b.position(words << 3);
+			for ( int shift=56; b.hasRemaining(); shift -= 8 ) {
+				b.put((byte)(snapshot[at] >>> shift));
+			}
+		}
+	}
+
+	/**
+	 * Write any changes to the cells or the header out to the file.
+	 */
+	public void force() {
+		if ( _writable ) {
+			_header.force();
+			for ( MappedByteBuffer segment : _segments ) {
+				segment.force();
+			}
+		}
+	}
+
+	/**
+	 * Write out any changes, and close the file. (The mapping itself goes
+	 * away only once the grid is garbage collected.)
+	 */
+	public void close() throws IOException {
+		force();
+		_channel.close();
+	}
+
+	/**
+	 * Cells are numbered row by row, with no padding (see the file format, above).
+	 */
+	protected long index(int x,int y) {
+		return (long)y * _w + x;
+	}
+
+	protected int read(long i) {
+		long b = i >>> 1;
+		int bits = _segments[(int)(b >>> SEGMENT_SHIFT)].get((int)(b & (SEGMENT_SIZE - 1)));
+		return (bits >>> ((int)(i & 1) << 2)) & 0xF;
+	}
+
+	protected void write(long i,int bits) {
+		long b = i >>> 1;
+		MappedByteBuffer segment = _segments[(int)(b >>> SEGMENT_SHIFT)];
+		int at = (int)(b & (SEGMENT_SIZE - 1));
+		int off = (int)(i & 1) << 2;
+		segment.put(at, (byte)((segment.get(at) & ~(0xF << off)) | ((bits & 0xF) << off)));
+	}
+
+	// Bytes taken by the cells of a w x h maze, two to a byte
+	private static long bytes(int w,int h) {
+		return ((long)w * h + 1) >>> 1;
+	}
+}
@@ -0,0 +1,72 @@
+/***********************************************************************
+ * Class MappedMaze is a maze kept in a file (see MappedGrid for the
+ * format), rather than on the heap.
+ *
+ * save() writes any maze out to a file; open() maps a file back in,
+ * which takes the same (short) time however large the maze is, as its
+ * cells are only paged in when something (drawing, solving, ...) reads
+ * them. The maze keeps the algorithm, seed and passage count it was
+ * saved with, and, if opened for writing, can be carved further.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+public class MappedMaze extends Maze implements Closeable {
+	// Define instance variables
+	private MappedGrid _mapped = null;
+
+	/**
+	 * Open the maze in the given file, for reading only (or for writing too).
+	 */
+	public static MappedMaze open(File file) throws IOException {
+		return open(file, false);
+	}
+	public static MappedMaze open(File file,boolean writable) throws IOException {
+		return new MappedMaze(MappedGrid.open(file, writable));
+	}
+
+	/**
+	 * Write the given maze to a file, and return it, as mapped there (for writing).
+	 */
+	public static MappedMaze save(Maze maze,File file) throws IOException {
+		Grid source = maze._grid;
+		MappedGrid grid = MappedGrid.create(file, source.width(), source.height());
+		try {
+			for ( int y=0; y < source.height(); ++y ) {
+				for ( int x=0; x < source.width(); ++x ) {
+					grid.set(x, y, source.get(x,y) & 0xF);
+				}
+			}
+			grid.describe(maze.metadata());
+			grid.force();
+		} catch ( RuntimeException e ) {
+			grid.close();
+			throw e;
+		}
+		return new MappedMaze(grid);
+	}
+
+	private MappedMaze(MappedGrid grid) {
+		super(grid, grid.metadata());
+		_mapped = grid;
+	}
+
+	public File file() {
+		return _mapped.file();
+	}
+
+	/**
+	 * Write the passage count back into the header (if the maze was opened
+	 * for writing), and close the file.
+	 */
+	public void close() throws IOException {
+		if ( _mapped.writable() ) {
+			_mapped.describe(_metadata);
+		}
+		_mapped.close();
+	}
+}
@@ -0,0 +1,238 @@
+/********************************************************************************************
+ * Class ParallelBackTracker carves the same kind of maze as BackTracker (a depth-first walk,
+ * with its long winding corridors), but spreads the work over the cores of the machine.
+ *
+ * The grid is cut into rectangular regions, and the regions are carved at the same time on a
+ * ForkJoinPool, each by a depth-first walk of its own which never leaves the region, so that
+ * each region is a perfect maze by itself. The regions are then joined into one perfect maze
+ * by a random spanning tree over them (Kruskal's algorithm, on the regions rather than on the
+ * cells): for each pair of neighboring regions joined by the tree, one wall, at random along
+ * the side they share, is knocked down.
+ *
+ * So that the maze depends only on the seed and the number of regions, and not on how many
+ * cores carve it, the regions are laid out from the size of the maze and the number asked
+ * for alone, region k always draws from the k-th RandomSource split off a source seeded with
+ * the maze seed (see RandomSource.forSplitting), and the spanning tree from the one split off
+ * after those. Which thread carves which region does not matter.
+ *
+ * Regions start on multiples of ALIGN cells, across and down, so that two regions never write
+ * to the same word of the Grid (in either layout, see MortonGrid). The regions write straight
+ * to the Grid, rather than through carve(), and each counts its own passages; the counts are
+ * added up, into the maze's Metadata, once the regions are done. The walls between regions
+ * are then knocked down (and counted by carve()) in a final, sequential, pass.
+ ********************************************************************************************/
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelBackTracker extends Maze {
+
+	// Define class variables
+	public static final int DEFAULT_REGIONS = 64;
+	public static final int ALIGN = 16;
+
+	// Directions in the order the shuffle starts from, and the initial explicit-stack size
+	private static final int[] DIRECTIONS = { Maze.N, Maze.S, Maze.E, Maze.W };
+	private static final int INITIAL_STACK = 256;
+
+	// Define instance variables
+	private int[] _xs = null;	// region column i spans x in [_xs[i], _xs[i+1])
+	private int[] _ys = null;	// region row j spans y in [_ys[j], _ys[j+1])
+	private RandomSource[] _streams = null;
+
+	//
+	// Standard Constructors
+	//
+	public ParallelBackTracker(int w,int h) {
+		super(w,h);
+		initialize(_random.nextLong(), DEFAULT_REGIONS, ForkJoinPool.commonPool());
+	}
+	public ParallelBackTracker(int w,int h,long seed) {
+		this(w,h,seed,DEFAULT_REGIONS);
+	}
+	public ParallelBackTracker(int w,int h,long seed,int regions) {
+		this(w,h,seed,regions,ForkJoinPool.commonPool());
+	}
+	public ParallelBackTracker(int w,int h,long seed,int regions,ForkJoinPool pool) {
+		super(w,h,seed);
+		initialize(seed, regions, pool);
+	}
+
+	private void initialize(long seed,int regions,ForkJoinPool pool) {
+		if ( regions < 1 ) {
+			throw new IllegalArgumentException("need at least one region: " + regions);
+		}
+		layout(regions);
+		int count = (_xs.length - 1) * (_ys.length - 1);
+		_metadata.tag("regions:" + count);
+
+		// One random stream per region, split off in region order, then one for the joins
+		RandomSource root = RandomSource.forSplitting(seed);
+		_streams = new RandomSource[count];
+		for ( int k=0; k < count; ++k ) {
+			_streams[k] = root.split();
+		}
+		RandomSource joins = root.split();
+
+		generating();
+		_metadata.setEdges(pool.invoke(new Regions(0, count)));
+		join(joins);
+		generated();
+	}
+
+	/****************************************************************************************
+	 * Cut the grid into (about) the given number of regions, as near square as we can.
+	 ***************************************************************************************/
+	private void layout(int regions) {
+		int across = (int)Math.round(Math.sqrt(regions * (double)_w / _h));
+		across = Math.max(1, Math.min(regions, across));
+		int down = Math.max(1, (regions + across - 1) / across);
+		_xs = edges(_w, across);
+		_ys = edges(_h, down);
+	}
+
+	// Split [0,n) into at most the given number of parts, each starting on a multiple of ALIGN
+	private static int[] edges(int n,int parts) {
+		int[] edges = new int[parts + 1];
+		int k = 0;
+		for ( int i=0; i < parts; ++i ) {
+			int edge = (int)((long)n * i / parts) / ALIGN * ALIGN;
+			if ( k == 0 || edge > edges[k-1] ) {
+				edges[k++] = edge;
+			}
+		}
+		edges[k++] = n;
+		return Arrays.copyOf(edges, k);
+	}
+
+	/****************************************************************************************
+	 * Carve region k by a depth-first walk from its top left cell, as BackTracker does (with
+	 * the same explicit stack), except that the walk never leaves the region. Return the
+	 * number of passages carved.
+	 ***************************************************************************************/
+	private long carveRegion(int k) {
+		RandomSource random = _streams[k];
+		int across = _xs.length - 1;
+		int x0 = _xs[k % across], x1 = _xs[k % across + 1];
+		int y0 = _ys[k / across], y1 = _ys[k / across + 1];
+
+		int[] states = new int[INITIAL_STACK];
+		int top = 0;
+		long edges = 0L;
+		int x = x0, y = y0;
+		states[0] = shuffle(random);
+		while ( top >= 0 ) {
+			int state = states[top];
+			int i = (state >>> 8) & 7;
+
+			// all four directions tried: step back the way we came
+			if ( i == 4 ) {
+				int from = DIRECTIONS[(state >>> 11) & 3];
+				x -= Maze.DX(from);
+				y -= Maze.DY(from);
+				--top;
+				continue;
+			}
+			states[top] = state + 0x100;
+
+			int code = (state >>> (i*2)) & 3;
+			int direction = DIRECTIONS[code];
+			int dx = x + Maze.DX(direction);
+			int dy = y + Maze.DY(direction);
+			if ( dx >= x0 && dx < x1 && dy >= y0 && dy < y1 && cell(dx,dy) == 0 ) {
+				_grid.link(x,y,direction);
+				++edges;
+				if ( ++top == states.length ) {
+					states = Arrays.copyOf(states, states.length * 2);
+				}
+				states[top] = shuffle(random) | (code << 11);
+				x = dx;
+				y = dy;
+			}
+		}
+		return edges;
+	}
+
+	/****************************************************************************************
+	 * Join the regions by a random spanning tree: visit every pair of neighboring regions in
+	 * random order, and knock down a wall between the two if they are not yet connected.
+	 ***************************************************************************************/
+	private void join(RandomSource random) {
+		int across = _xs.length - 1, down = _ys.length - 1;
+
+		// each pair is packed as (region << 1) | (1 if with the region to its east, 0 if to its south)
+		int[] pairs = new int[(across-1)*down + across*(down-1)];
+		int n = 0;
+		for ( int j=0; j < down; ++j ) {
+			for ( int i=0; i < across; ++i ) {
+				int k = j*across + i;
+				if ( i+1 < across ) 	{ pairs[n++] = (k << 1) | 1; }
+				if ( j+1 < down ) 	{ pairs[n++] = k << 1; }
+			}
+		}
+		for ( int p=n - 1; p > 0; --p ) {
+			int q = random.nextInt(p + 1);
+			int tmp = pairs[p];
+			pairs[p] = pairs[q];
+			pairs[q] = tmp;
+		}
+
+		DisjointSet sets = new DisjointSet(across * down);
+		for ( int p=0; p < n && sets.count() > 1; ++p ) {
+			int k = pairs[p] >>> 1;
+			int i = k % across, j = k / across;
+			if ( (pairs[p] & 1) != 0 ) {
+				if ( sets.union(k, k + 1) ) {
+					carve(_xs[i+1] - 1, _ys[j] + random.nextInt(_ys[j+1] - _ys[j]), Maze.E);
+				}
+			} else if ( sets.union(k, k + across) ) {
+				carve(_xs[i] + random.nextInt(_xs[i+1] - _xs[i]), _ys[j+1] - 1, Maze.S);
+			}
+		}
+	}
+
+	/****************************************************************************************
+	 * Randomly shuffle the directions N, S, E, W, returning them packed 2 bits apiece into the
+	 * low 8 bits of an int (as BackTracker does, but drawing from the region's own source).
+	 ***************************************************************************************/
+	private static int shuffle(RandomSource random) {
+		int packed = 0 | (1 << 2) | (2 << 4) | (3 << 6);
+		for ( int i=0; i < 4; ++i ) {
+			int pos = random.nextInt(4);
+			int a = (packed >>> (i*2)) & 3;
+			int b = (packed >>> (pos*2)) & 3;
+			packed &= ~((3 << (i*2)) | (3 << (pos*2)));
+			packed |= (b << (i*2)) | (a << (pos*2));
+		}
+		return packed;
+	}
+
+	/****************************************************************************************
+	 * Carve the regions [from,to), splitting the range in half until only one region is left,
+	 * and return the number of passages carved.
+	 ***************************************************************************************/
+	@SuppressWarnings("serial")
+	private class Regions extends RecursiveTask<Long> {
+		private int _from;
+		private int _to;
+
+		Regions(int from,int to) {
+			_from = from;
+			_to = to;
+		}
+
+		protected Long compute() {
+			if ( _to - _from == 1 ) {
+				return carveRegion(_from);
+			} else if ( _to <= _from ) {
+				return 0L;
+			}
+			int mid = (_from + _to) >>> 1;
+			Regions left = new Regions(_from, mid);
+			left.fork();
+			long right = new Regions(mid, _to).compute();
+			return right + left.join();
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/***********************************************************************
+ * Class PathOracle answers "how far apart are cells a and b" (in O(1))
+ * and "what is the path from a to b" (in O(length of the path)) for a
+ * perfect maze, after one linear pass over its grid.
+ *
+ * A perfect maze is a spanning tree over its cells. Rooting the tree at
+ * cell (0,0), the distance between a and b is
+ *
+ *     depth(a) + depth(b) - 2*depth(lca(a,b))
+ *
+ * where lca is their lowest common ancestor, and the path runs from a up
+ * to the lca and down again to b.
+ *
+ * The lca is found by a range-minimum query over the depths of an Euler
+ * tour of the tree. We use its compact form, the DFS pre-order, with n
+ * rather than 2n-1 entries: if a is visited before b (and a != b), the
+ * shallowest cell visited after a, up to and including b, is a child of
+ * lca(a,b).
+ *
+ * Range minima take O(1) time and linear space: the order is cut into
+ * blocks of 64, with a sparse table over the minimum of each block, and
+ * within a block a 64-bit mask for each position i, with a bit set for
+ * every position j <= i which is the minimum of [j,i] (i.e., the stack
+ * of candidate minima, as seen from i). Depths are also kept in order
+ * of position, and packed with the positions in the sparse table, so a
+ * query touches as few cache lines as it can.
+ *
+ * Cells are numbered y*width + x. Everything is kept in flat int[] (and
+ * long[]) arrays: there are no per-cell objects.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.Arrays;
+
+public class PathOracle {
+	// Define class variables
+	private static final int BLOCK_SHIFT = 6;
+	private static final int BLOCK = 1 << BLOCK_SHIFT;
+	private static final int WALLS = Maze.N | Maze.S | Maze.E | Maze.W;
+
+	// Define instance variables
+	private int _w = 0;
+	private int _h = 0;
+	private int _n = 0;
+
+	private int[] _parent = null;	// parent of each cell (-1 for the root)
+	private int[] _depth = null;	// distance of each cell from the root
+	private int[] _order = null;	// cells, in DFS pre-order
+	private int[] _tin = null;	// position of each cell in _order
+	private int[] _level = null;	// depth of the cell at each position of _order
+
+	private long[] _masks = null;	// per position: candidate minima within its block
+	private long[][] _table = null;	// _table[k][b]: minimum over blocks b .. b+2^k-1, as (depth << 32 | position)
+
+	/**
+	 * Index the (perfect) maze drawn on the given grid.
+	 *
+	 * @throws IllegalArgumentException if the maze is not a spanning tree
+	 */
+	public PathOracle(Maze maze) {
+		this(maze._grid);
+	}
+	public PathOracle(Grid grid) {
+		_w = grid.width();
+		_h = grid.height();
+		long n = (long)_w * _h;
+		if ( n < 1 || n > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalArgumentException("maze too large to index: " + _w + "x" + _h);
+		}
+		_n = (int)n;
+		walk(grid);
+		index();
+	}
+
+	public int width() { return _w; }
+	public int height() { return _h; }
+
+	/**
+	 * Return the number of cell (x,y), as used by the other methods.
+	 */
+	public int cell(int x,int y) {
+		return y*_w + x;
+	}
+
+	/**
+	 * Return the number of steps from the root (0,0) to the cell.
+	 */
+	public int depth(int cell) {
+		return _depth[cell];
+	}
+
+	/**
+	 * Return the next cell on the way from the cell to the root (or -1, for the root itself).
+	 */
+	public int parent(int cell) {
+		return _parent[cell];
+	}
+
+	/**
+	 * Return the lowest common ancestor of cells a and b.
+	 */
+	public int lca(int a,int b) {
+		if ( a == b ) {
+			return a;
+		}
+		int i = _tin[a], j = _tin[b];
+		if ( i > j ) {
+			int t = i; i = j; j = t;
+		}
+		return _parent[_order[(int)minimum(i+1, j)]];
+	}
+
+	/**
+	 * Return the length (in steps) of the path between cells a and b.
+	 *
+	 * The lca is the parent of the shallowest cell in the range, so its
+	 * depth is one less than the minimum, and we need not look it up.
+	 */
+	public int distance(int a,int b) {
+		if ( a == b ) {
+			return 0;
+		}
+		int i = _tin[a], j = _tin[b];
+		if ( i > j ) {
+			int t = i; i = j; j = t;
+		}
+		int above = (int)(minimum(i+1, j) >>> 32) - 1;
+		return _depth[a] + _depth[b] - 2*above;
+	}
+	public int distance(int x1,int y1,int x2,int y2) {
+		return distance(cell(x1,y1), cell(x2,y2));
+	}
+
+	/**
+	 * Return the cells on the path from a to b, both included.
+	 */
+	public int[] path(int a,int b) {
+		int c = lca(a,b);
+		int up = _depth[a] - _depth[c];
+		int[] path = new int[up + _depth[b] - _depth[c] + 1];
+
+		// climb from a to the lca, then fill in from b back down to it
+		int i = 0;
+		for ( int p=a; p != c; p = _parent[p] ) {
+			path[i++] = p;
+		}
+		path[i] = c;
+		i = path.length;
+		for ( int p=b; p != c; p = _parent[p] ) {
+			path[--i] = p;
+		}
+		return path;
+	}
+
+	// Root the tree at cell 0, recording parents, depths and the DFS pre-order
+	private void walk(Grid grid) {
+		_parent = new int[_n];
+		_depth = new int[_n];
+		_order = new int[_n];
+		_tin = new int[_n];
+		Arrays.fill(_tin, -1);
+
+		// every cell is pushed once in a tree, so the stack never holds more than n
+		int[] stack = new int[_n];
+		int top = 0;
+		stack[top++] = 0;
+		_parent[0] = -1;
+		int visited = 0;
+		while ( top > 0 ) {
+			int cell = stack[--top];
+			if ( _tin[cell] >= 0 ) {
+				throw new IllegalArgumentException("not a perfect maze: passages form a loop at cell " + cell);
+			}
+			_tin[cell] = visited;
+			_order[visited++] = cell;
+
+			int x = cell % _w, y = cell / _w;
+			int walls = grid.get(x,y) & WALLS;
+			int parent = _parent[cell];
+			while ( walls != 0 ) {
+				int direction = walls & -walls;
+				walls ^= direction;
+				int next = cell(x + Maze.DX(direction), y + Maze.DY(direction));
+				if ( next != parent ) {
+					if ( top == _n ) {
+						throw new IllegalArgumentException("not a perfect maze: passages form a loop at cell " + next);
+					}
+					_parent[next] = cell;
+					_depth[next] = _depth[cell] + 1;
+					stack[top++] = next;
+				}
+			}
+		}
+		if ( visited < _n ) {
+			throw new IllegalArgumentException("not a perfect maze: only " + visited + " of " + _n + " cells reachable");
+		}
+	}
+
+	// Build the in-block masks, and the sparse table over the blocks
+	private void index() {
+		_level = new int[_n];
+		for ( int i=0; i < _n; ++i ) {
+			_level[i] = _depth[_order[i]];
+		}
+
+		_masks = new long[_n];
+		int blocks = (_n + BLOCK - 1) >>> BLOCK_SHIFT;
+		for ( int b=0; b < blocks; ++b ) {
+			int start = b << BLOCK_SHIFT;
+			int end = Math.min(_n, start + BLOCK);
+			long stack = 0L;
+			for ( int i=start; i < end; ++i ) {
+				int d = _level[i];
+				while ( stack != 0 && _level[start + 63 - Long.numberOfLeadingZeros(stack)] >= d ) {
+					stack ^= Long.highestOneBit(stack);
+				}
+				stack |= 1L << (i - start);
+				_masks[i] = stack;
+			}
+		}
+
+		int levels = 32 - Integer.numberOfLeadingZeros(blocks);
+		_table = new long[levels][];
+		_table[0] = new long[blocks];
+		for ( int b=0; b < blocks; ++b ) {
+			int start = b << BLOCK_SHIFT;
+			_table[0][b] = packed(inBlock(start, Math.min(_n, start + BLOCK) - 1));
+		}
+		for ( int k=1; k < levels; ++k ) {
+			long[] prev = _table[k-1];
+			long[] next = new long[blocks - (1 << k) + 1];
+			for ( int b=0; b < next.length; ++b ) {
+				next[b] = Math.min(prev[b], prev[b + (1 << (k-1))]);
+			}
+			_table[k] = next;
+		}
+	}
+
+	// Minimum depth over the positions [i,j] of the order, packed with its position
+	private long minimum(int i,int j) {
+		int bi = i >>> BLOCK_SHIFT, bj = j >>> BLOCK_SHIFT;
+		if ( bi == bj ) {
+			return packed(inBlock(i,j));
+		}
+		long best = Math.min(packed(inBlock(i, (bi << BLOCK_SHIFT) + BLOCK - 1)), packed(inBlock(bj << BLOCK_SHIFT, j)));
+		if ( bj - bi > 1 ) {
+			int from = bi + 1, to = bj - 1;
+			int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+			best = Math.min(best, Math.min(_table[k][from], _table[k][to - (1 << k) + 1]));
+		}
+		return best;
+	}
+
+	// Position of the minimum over [i,j], both in the same block: the lowest candidate at or after i
+	private int inBlock(int i,int j) {
+		int start = j & ~(BLOCK - 1);
+		return start + Long.numberOfTrailingZeros(_masks[j] & (-1L << (i - start)));
+	}
+
+	// Depth and position, packed so that the smaller long is the shallower position
+	private long packed(int position) {
+		return ((long)_level[position] << 32) | position;
+	}
+}
@@ -0,0 +1,108 @@
+/*******************************************************************
+ * Replay a maze recorded by "Driver -l<file>", without running the
+ * generator again. Uses the same simple "optparse" as Driver:
+ *
+ * <pre>
+ * > java Replay -l<file> [-n<step>] [-b<step>] [-a] [-d<delay>] [-f<fps>]
+ * </pre>
+ *
+ * Draws the maze as it stood after step n (by default, the end of the
+ * log). With -a, animates the carves from step b (by default, 0) up
+ * to step n instead.
+ *
+ * @author psholtz
+ ******************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+
+public class Replay {
+	public static void main(String[] args) throws IOException {
+		String file = null;
+		long begin = 0L;
+		long end = -1L;
+		boolean animate = false;
+		float delay = 0.0f;
+		int fps = Animator.DEFAULT_FRAME_RATE;
+
+		// ignore arguments that we don't understand
+		for ( int i=0; i < args.length; ++i ) {
+			String arg = args[i];
+
+			// parse the "parameter" arguments
+			if ( arg.length() > 2 ) {
+				String s = arg.substring(0,1);
+				String t = arg.substring(1,2);
+				if ( s.equals("-") ) {
+					if ( t.equals("l") ) {
+						file = arg.substring(2);
+					}
+					else if ( t.equals("b") ) {
+						begin = Long.parseLong(arg.substring(2));
+					}
+					else if ( t.equals("n") ) {
+						end = Long.parseLong(arg.substring(2));
+					}
+					else if ( t.equals("d") ) {
+						delay = Float.parseFloat(arg.substring(2));
+					}
+					else if ( t.equals("f") ) {
+						fps = Integer.parseInt(arg.substring(2));
+					}
+				}
+			}
+
+			// parse the "no parameter" arguments
+			else if ( arg.length() > 1 ) {
+				String s = arg.substring(0,1);
+				String t = arg.substring(1,2);
+				if ( s.equals("-") ) {
+					if ( t.equals("a") ) {
+						animate = true;
+					}
+				}
+			}
+		}
+		if ( file == null ) {
+			System.err.println("usage: java Replay -l<file> [-n<step>] [-b<step>] [-a] [-d<delay>] [-f<fps>]");
+			System.exit(1);
+		}
+
+		Replayer replayer = new Replayer(new File(file));
+		if ( end < 0 ) {
+			end = replayer.steps();
+		}
+		Renderer r = new Renderer(replayer.grid());
+		r.clear();
+
+		if ( !animate ) {
+			// seek straight to the step, and draw it
+			replayer.seek(end);
+			r.home();
+			r.rows();
+		} else {
+			// seek to the first step, and animate from there
+			replayer.seek(begin);
+			int w = replayer.width();
+			Animator animator = new Animator(r, w, fps);
+			animator.start();
+			while ( replayer.position() < end ) {
+				long event = replayer.next();
+				int cell = CarveEvents.cell(event);
+				animator.carve(cell % w, cell / w, CarveEvents.direction(event));
+				if ( delay > 0 ) {
+					try {
+						Thread.sleep((long)(delay*1000));
+					} catch ( InterruptedException ex ) {
+						// pass by exception
+					}
+				}
+			}
+			animator.finish();
+		}
+
+		// output replay metadata
+		r.println("replay: " + file + " " + replayer.width() + " " + replayer.height() + " step " + replayer.position() + " of " + replayer.steps());
+		r.flush();
+	}
+}
@@ -0,0 +1,459 @@
+/***********************************************************************
+ * Class Solver finds paths through a maze, working directly on the
+ * N/S/E/W bits of its Grid. It offers
+ *
+ * bfs()           -- breadth-first search from one end.
+ * bidirectional() -- breadth-first search from both ends at once, always
+ *                    growing the smaller frontier by a whole level, until
+ *                    they meet (taking the shortest of the meetings in
+ *                    that level, so the path is shortest on any maze).
+ * astar()         -- A*, guided by the Manhattan distance to the goal.
+ * deadEndFill()   -- fill in every dead end (and then every cell which
+ *                    leads only to filled ones) until only the paths
+ *                    between the two ends remain, and walk those.
+ * distances()     -- the distance of every cell from the nearest of any
+ *                    number of sources (a multi-source BFS).
+ *
+ * Every search returns the cells of a shortest path (with the first and
+ * last cells at either end), or null if the ends are not connected; on
+ * a perfect maze there is only one path, which all of them find. After
+ * each search explored() gives how many cells it visited.
+ *
+ * Cells are numbered y*width + x. There are no per-cell objects: the
+ * solver keeps primitive queues, bitsets of visited cells and a byte of
+ * the direction each cell was reached from, and reuses them from one
+ * search to the next (so one Solver must not be used by two threads).
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.Arrays;
+
+public class Solver {
+	// Define class variables
+	private static final int WALLS = Maze.N | Maze.S | Maze.E | Maze.W;
+
+	// Define instance variables
+	private Grid _grid = null;
+	private int _w = 0;
+	private int _h = 0;
+	private int _n = 0;
+	private int[] _delta = new int[WALLS + 1];	// cell offset in each direction
+	private long _explored = 0;
+
+	// Scratch space, allocated as the searches first need it
+	private long[] _visited = null;
+	private long[] _reached = null;
+	private byte[] _from = null;
+	private byte[] _back = null;
+	private int[] _queue = null;
+	private int[] _other = null;
+	private int[] _cost = null;
+	private long[] _heap = null;
+	private byte[] _degree = null;
+
+	/**
+	 * Prepare to solve the maze drawn on the given grid.
+	 */
+	public Solver(Maze maze) {
+		this(maze._grid);
+	}
+	public Solver(Grid grid) {
+		_grid = grid;
+		_w = grid.width();
+		_h = grid.height();
+		long n = (long)_w * _h;
+		if ( n > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalArgumentException("maze too large to solve: " + _w + "x" + _h);
+		}
+		_n = (int)n;
+		_delta[Maze.N] = -_w;
+		_delta[Maze.S] = _w;
+		_delta[Maze.E] = 1;
+		_delta[Maze.W] = -1;
+	}
+
+	public int width() { return _w; }
+	public int height() { return _h; }
+
+	/**
+	 * Return the number of cell (x,y), as used by the other methods.
+	 */
+	public int cell(int x,int y) {
+		return y*_w + x;
+	}
+
+	/**
+	 * Return the number of cells visited by the last search.
+	 */
+	public long explored() {
+		return _explored;
+	}
+
+	/**
+	 * Find a shortest path from cell from to cell to, by breadth-first search.
+	 */
+	public int[] bfs(int from,int to) {
+		check(from); check(to);
+		_visited = clear(_visited);
+		_from = bytes(_from);
+		_queue = ints(_queue);
+		return search(from, to);
+	}
+
+	/**
+	 * Find a shortest path from cell from to cell to, searching from both ends.
+	 */
+	public int[] bidirectional(int from,int to) {
+		check(from); check(to);
+		if ( from == to ) {
+			_explored = 1;
+			return new int[] { from };
+		}
+		_visited = clear(_visited);
+		_reached = clear(_reached);
+		_from = bytes(_from);
+		_back = bytes(_back);
+		_queue = ints(_queue);
+		_other = ints(_other);
+
+		// each side's queue holds its current level, from head to tail
+		int[] q1 = _queue, q2 = _other;
+		int h1 = 0, t1 = 0, h2 = 0, t2 = 0;
+		q1[t1++] = from; set(_visited, from);
+		q2[t2++] = to; set(_reached, to);
+		_explored = 2;
+
+		while ( h1 < t1 && h2 < t2 ) {
+			boolean forward = (t1 - h1) <= (t2 - h2);
+			int[] q = forward ? q1 : q2;
+			long[] mine = forward ? _visited : _reached;
+			long[] theirs = forward ? _reached : _visited;
+			byte[] came = forward ? _from : _back;
+			byte[] back = forward ? _back : _from;
+			int root = forward ? to : from;
+
+			// expand one whole level of the smaller side, keeping the meeting (if any)
+			// with the shortest way on to the other end: our side of it is the same
+			// length for every meeting in the level
+			int meet = -1, best = Integer.MAX_VALUE;
+			int head = forward ? h1 : h2, tail = forward ? t1 : t2, end = tail;
+			while ( head < end ) {
+				int cell = q[head++];
+				int walls = walls(cell);
+				while ( walls != 0 ) {
+					int direction = walls & -walls;
+					walls ^= direction;
+					int next = cell + _delta[direction];
+					if ( !get(mine, next) ) {
+						set(mine, next);
+						came[next] = (byte)direction;
+						++_explored;
+						if ( get(theirs, next) ) {
+							int length = steps(root, next, back);
+							if ( length < best ) {
+								best = length;
+								meet = next;
+							}
+						}
+						q[tail++] = next;
+					}
+				}
+			}
+			if ( meet >= 0 ) {
+				return join(from, to, meet);
+			}
+			if ( forward ) { h1 = head; t1 = tail; } else { h2 = head; t2 = tail; }
+		}
+		return null;
+	}
+
+	/**
+	 * Find a shortest path from cell from to cell to, by A* (with the
+	 * Manhattan distance, which never overestimates, as its heuristic).
+	 */
+	public int[] astar(int from,int to) {
+		check(from); check(to);
+		_visited = clear(_visited);
+		_reached = clear(_reached);
+		_from = bytes(_from);
+		if ( _cost == null ) {
+			_cost = new int[_n];
+		}
+		if ( _heap == null ) {
+			_heap = new long[64];
+		}
+		int tx = to % _w, ty = to / _w;
+
+		// heap entries are (estimated total cost << 32 | cell), so the cheapest comes first
+		int size = 0;
+		_cost[from] = 0;
+		set(_reached, from);
+		size = push(size, ((long)manhattan(from, tx, ty) << 32) | from);
+		_explored = 0;
+
+		while ( size > 0 ) {
+			long top = _heap[0];
+			size = pop(size);
+			int cell = (int)top;
+			if ( get(_visited, cell) ) {
+				continue;
+			}
+			set(_visited, cell);
+			++_explored;
+			if ( cell == to ) {
+				return path(from, to, _from);
+			}
+
+			int cost = _cost[cell] + 1;
+			int walls = walls(cell);
+			while ( walls != 0 ) {
+				int direction = walls & -walls;
+				walls ^= direction;
+				int next = cell + _delta[direction];
+				if ( !get(_visited, next) && ( !get(_reached, next) || cost < _cost[next] ) ) {
+					set(_reached, next);
+					_cost[next] = cost;
+					_from[next] = (byte)direction;
+					size = push(size, ((long)(cost + manhattan(next, tx, ty)) << 32) | next);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Find the path from cell from to cell to by dead-end filling: every
+	 * cell but the two ends with only one open neighbor is filled, which
+	 * may leave its neighbor a dead end in turn, and so on. What is left
+	 * unfilled are the paths between the ends (on a perfect maze, just the
+	 * one), which are then searched breadth-first.
+	 */
+	public int[] deadEndFill(int from,int to) {
+		check(from); check(to);
+		_visited = clear(_visited);
+		_from = bytes(_from);
+		_queue = ints(_queue);
+		if ( _degree == null ) {
+			_degree = new byte[_n];
+		}
+
+		// count the open walls of every cell
+		for ( int y=0; y < _h; ++y ) {
+			for ( int x=0; x < _w; ++x ) {
+				_degree[y*_w + x] = (byte)Integer.bitCount(_grid.get(x,y) & WALLS);
+			}
+		}
+
+		// fill in (marking as visited) each dead end, in the order they lie in the
+		// grid, and follow it back to where it branches: the degree of each cell
+		// counts only its unfilled neighbors, so a dead end has at most one left
+		long filled = 0;
+		for ( int y=0; y < _h; ++y ) {
+			for ( int x=0; x < _w; ++x ) {
+				int cell = y*_w + x, cx = x, cy = y;
+				while ( _degree[cell] <= 1 && cell != from && cell != to && !get(_visited, cell) ) {
+					set(_visited, cell);
+					++filled;
+					int walls = _grid.get(cx,cy) & WALLS;
+					int next = -1;
+					while ( walls != 0 ) {
+						int direction = walls & -walls;
+						walls ^= direction;
+						if ( !get(_visited, cell + _delta[direction]) ) {
+							next = cell + _delta[direction];
+							cx += Maze.DX(direction);
+							cy += Maze.DY(direction);
+							break;
+						}
+					}
+					if ( next < 0 ) {
+						break;
+					}
+					--_degree[next];
+					cell = next;
+				}
+			}
+		}
+
+		// search what is left: the filled cells count as visited already
+		int[] path = search(from, to);
+		_explored += filled;
+		return path;
+	}
+
+	/**
+	 * Return the distance (in steps) of every cell from the nearest of the
+	 * given cells, or -1 for cells which none of them can reach.
+	 */
+	public int[] distances(int... sources) {
+		int[] distance = new int[_n];
+		Arrays.fill(distance, -1);
+		_queue = ints(_queue);
+
+		int tail = 0;
+		for ( int source : sources ) {
+			check(source);
+			if ( distance[source] < 0 ) {
+				distance[source] = 0;
+				_queue[tail++] = source;
+			}
+		}
+		int head = 0;
+		while ( head < tail ) {
+			int cell = _queue[head++];
+			int d = distance[cell] + 1;
+			int walls = walls(cell);
+			while ( walls != 0 ) {
+				int direction = walls & -walls;
+				walls ^= direction;
+				int next = cell + _delta[direction];
+				if ( distance[next] < 0 ) {
+					distance[next] = d;
+					_queue[tail++] = next;
+				}
+			}
+		}
+		_explored = tail;
+		return distance;
+	}
+
+	// Breadth-first search from from to to, skipping cells already marked in _visited
+	private int[] search(int from,int to) {
+		int head = 0, tail = 0;
+		_queue[tail++] = from;
+		set(_visited, from);
+		while ( head < tail ) {
+			int cell = _queue[head++];
+			if ( cell == to ) {
+				_explored = tail;
+				return path(from, to, _from);
+			}
+			int walls = walls(cell);
+			while ( walls != 0 ) {
+				int direction = walls & -walls;
+				walls ^= direction;
+				int next = cell + _delta[direction];
+				if ( !get(_visited, next) ) {
+					set(_visited, next);
+					_from[next] = (byte)direction;
+					_queue[tail++] = next;
+				}
+			}
+		}
+		_explored = tail;
+		return null;
+	}
+
+	// Follow the directions cells were reached by back from to to from
+	private int[] path(int from,int to,byte[] came) {
+		int length = steps(from, to, came) + 1;
+		int[] path = new int[length];
+		for ( int cell=to; ; cell -= _delta[came[cell]] ) {
+			path[--length] = cell;
+			if ( cell == from ) {
+				break;
+			}
+		}
+		return path;
+	}
+
+	// The number of steps from from to to, along the way the search came
+	private int steps(int from,int to,byte[] came) {
+		int steps = 0;
+		for ( int cell=to; cell != from; cell -= _delta[came[cell]] ) {
+			++steps;
+		}
+		return steps;
+	}
+
+	// Join the forward search (from from) and the backward one (from to), which met at cell
+	private int[] join(int from,int to,int meet) {
+		int[] first = path(from, meet, _from);
+		int[] second = path(to, meet, _back);
+		int[] path = new int[first.length + second.length - 1];
+		System.arraycopy(first, 0, path, 0, first.length);
+		for ( int i=second.length-2, j=first.length; i >= 0; --i ) {
+			path[j++] = second[i];
+		}
+		return path;
+	}
+
+	// The open walls of cell
+	private int walls(int cell) {
+		return _grid.get(cell % _w, cell / _w) & WALLS;
+	}
+
+	private int manhattan(int cell,int tx,int ty) {
+		return Math.abs(cell % _w - tx) + Math.abs(cell / _w - ty);
+	}
+
+	// Binary min-heap of longs, in _heap[0 .. size)
+	private int push(int size,long value) {
+		if ( size == _heap.length ) {
+			_heap = Arrays.copyOf(_heap, size * 2);
+		}
+		int i = size++;
+		while ( i > 0 ) {
+			int parent = (i - 1) >>> 1;
+			if ( _heap[parent] <= value ) {
+				break;
+			}
+			_heap[i] = _heap[parent];
+			i = parent;
+		}
+		_heap[i] = value;
+		return size;
+	}
+
+	private int pop(int size) {
+		long last = _heap[--size];
+		int i = 0;
+		while ( true ) {
+			int child = 2*i + 1;
+			if ( child >= size ) {
+				break;
+			}
+			if ( child + 1 < size && _heap[child + 1] < _heap[child] ) {
+				++child;
+			}
+			if ( _heap[child] >= last ) {
+				break;
+			}
+			_heap[i] = _heap[child];
+			i = child;
+		}
+		_heap[i] = last;
+		return size;
+	}
+
+	private void check(int cell) {
+		if ( cell < 0 || cell >= _n ) {
+			throw new IllegalArgumentException("no such cell: " + cell);
+		}
+	}
+
+	private long[] clear(long[] bits) {
+		if ( bits == null ) {
+			return new long[(_n + 63) >>> 6];
+		}
+		Arrays.fill(bits, 0L);
+		return bits;
+	}
+
+	private byte[] bytes(byte[] array) {
+		return ( array != null ) ? array : new byte[_n];
+	}
+
+	private int[] ints(int[] array) {
+		return ( array != null ) ? array : new int[_n];
+	}
+
+	private static boolean get(long[] bits,int i) {
+		return (bits[i >>> 6] & (1L << i)) != 0;
+	}
+
+	private static void set(long[] bits,int i) {
+		bits[i >>> 6] |= 1L << i;
+	}
+}
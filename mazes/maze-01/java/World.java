@@ -0,0 +1,249 @@
+/***********************************************************************
+ * Class World is an (effectively) unbounded maze, made of square chunks
+ * which are only generated when something looks at them.
+ *
+ * Chunk (cx,cy) holds the cells (x,y) with cx = floor(x/size) and
+ * cy = floor(y/size), for any x and y which keep cx and cy within the
+ * range of an int (2^32 chunks across, and down). Each chunk is carved by one
+ * of the generators (BackTracker, by default) as a size x size maze of
+ * its own, seeded from the world seed and the chunk coordinates, so it
+ * comes out the same whenever (and on whichever machine) it is made.
+ *
+ * Chunks are joined by the binary tree algorithm, one level up: every
+ * chunk knocks down one "door" in its north or its west edge, chosen
+ * (like the position of the door along that edge) by hashing the world
+ * seed and the chunk coordinates. A chunk can therefore work out every
+ * door on its edges -- its own, and those of the chunks to its south and
+ * east -- without looking at any other chunk, and, as every chunk is a
+ * perfect maze joined to the rest through one door of its own, the
+ * whole world is a perfect maze too.
+ *
+ * Generated chunks are kept in an LRU cache, which evicts the least
+ * recently used chunks once their grids take more than a byte budget.
+ * The cache counts its hits, misses and evictions. It is safe to use
+ * from many threads: chunks are generated outside the lock, so a miss
+ * never holds up hits on other chunks.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class World {
+	// Define class variables
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+	public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+
+	/**
+	 * Carves a size x size chunk (e.g., by calling a generator's (w,h,seed) constructor).
+	 */
+	public interface Generator {
+		Maze generate(int w,int h,long seed);
+	}
+
+	// Define instance variables
+	private long _seed = 0L;
+	private int _size = 0;
+	private long _budget = 0L;
+	private Generator _generator = null;
+
+	// Chunks, least recently used first, and the bytes their grids take up
+	private LinkedHashMap<Long,Grid> _chunks = new LinkedHashMap<Long,Grid>(256, 0.75f, true);
+	private long _bytes = 0L;
+	private long _hits = 0L;
+	private long _misses = 0L;
+	private long _evictions = 0L;
+
+	/**
+	 * Make the world with the given seed, of chunks of the given size (carved by BackTracker),
+	 * keeping at most (about) cacheBytes of them.
+	 */
+	public World(long seed) {
+		this(seed, DEFAULT_CHUNK_SIZE, DEFAULT_CACHE_BYTES);
+	}
+	public World(long seed,int size,long cacheBytes) {
+		this(seed, size, cacheBytes, new Generator() {
+			public Maze generate(int w,int h,long seed) {
+				return new BackTracker(w,h,seed);
+			}
+		});
+	}
+	public World(long seed,int size,long cacheBytes,Generator generator) {
+		if ( size < 1 ) {
+			throw new IllegalArgumentException("chunk size must be positive: " + size);
+		}
+		_seed = seed;
+		_size = size;
+		_budget = cacheBytes;
+		_generator = generator;
+	}
+
+	public long seed() { return _seed; }
+	public int chunkSize() { return _size; }
+
+	/**
+	 * Return the N/S/E/W bits of the cell (x,y) of the world.
+	 */
+	public int get(long x,long y) {
+		Grid chunk = chunk(Math.floorDiv(x, _size), Math.floorDiv(y, _size));
+		return chunk.get((int)Math.floorMod(x, (long)_size), (int)Math.floorMod(y, (long)_size));
+	}
+
+	/**
+	 * Copy the w x h window of the world whose top left cell is (x,y) into a new
+	 * grid (e.g., to draw it with a Renderer, or solve it). Passages which cross
+	 * the edge of the window are walled up, so the window is a grid like any
+	 * other, though not always a connected one.
+	 */
+	public Grid window(long x,long y,int w,int h) {
+		Grid window = new Grid(w,h);
+		for ( int j=0; j < h; ) {
+			// copy a run of rows and columns at a time from each chunk it covers
+			long cy = Math.floorDiv(y + j, _size);
+			int y0 = (int)Math.floorMod(y + j, (long)_size);
+			int rows = Math.min(h - j, _size - y0);
+			for ( int i=0; i < w; ) {
+				long cx = Math.floorDiv(x + i, _size);
+				int x0 = (int)Math.floorMod(x + i, (long)_size);
+				int cols = Math.min(w - i, _size - x0);
+				Grid chunk = chunk(cx, cy);
+				for ( int dy=0; dy < rows; ++dy ) {
+					for ( int dx=0; dx < cols; ++dx ) {
+						int cell = chunk.get(x0 + dx, y0 + dy);
+						// passages leading out of the window are walled up
+						if ( j + dy == 0 ) 	{ cell &= ~Maze.N; }
+						if ( j + dy == h - 1 ) 	{ cell &= ~Maze.S; }
+						if ( i + dx == 0 ) 	{ cell &= ~Maze.W; }
+						if ( i + dx == w - 1 ) 	{ cell &= ~Maze.E; }
+						window.set(i + dx, j + dy, cell);
+					}
+				}
+				i += cols;
+			}
+			j += rows;
+		}
+		return window;
+	}
+
+	/**
+	 * Return the grid of chunk (cx,cy), from the cache or freshly generated.
+	 */
+	public Grid chunk(long cx,long cy) {
+		if ( cx != (int)cx || cy != (int)cy ) {
+			throw new IllegalArgumentException("chunk (" + cx + "," + cy + ") is beyond the edge of the world");
+		}
+		Long key = key(cx, cy);
+		synchronized ( this ) {
+			Grid grid = _chunks.get(key);
+			if ( grid != null ) {
+				++_hits;
+				return grid;
+			}
+			++_misses;
+		}
+
+		Grid grid = generate(cx, cy);
+		synchronized ( this ) {
+			// another thread may have made the same chunk meanwhile: keep the first
+			Grid other = _chunks.get(key);
+			if ( other != null ) {
+				return other;
+			}
+			_chunks.put(key, grid);
+			_bytes += bytes(grid);
+			evict(key);
+		}
+		return grid;
+	}
+
+	/**
+	 * Return how many times a chunk was found in the cache, or had to be generated.
+	 */
+	public synchronized long hits() 	{ return _hits; }
+	public synchronized long misses() 	{ return _misses; }
+	public synchronized long evictions() 	{ return _evictions; }
+
+	/**
+	 * Return the number of chunks in the cache, and the bytes their grids take up.
+	 */
+	public synchronized int cached() 	{ return _chunks.size(); }
+	public synchronized long cachedBytes() 	{ return _bytes; }
+
+	/**
+	 * Return a one line report of the cache.
+	 */
+	public synchronized String stats() {
+		return "chunks: " + _chunks.size() + " cached (" + _bytes + " bytes), "
+			+ _hits + " hits, " + _misses + " misses, " + _evictions + " evictions";
+	}
+
+	// Carve chunk (cx,cy), and knock down the doors on its edges
+	private Grid generate(long cx,long cy) {
+		Grid grid = _generator.generate(_size, _size, mix(_seed, cx, cy))._grid;
+		int last = _size - 1;
+
+		// our own door, to the north or to the west
+		long door = door(cx, cy);
+		if ( (door & 1) == 0 ) {
+			grid.or(position(door), 0, Maze.N);
+		} else {
+			grid.or(0, position(door), Maze.W);
+		}
+
+		// the door of the chunk to the south, if it goes north (into us)
+		door = door(cx, cy + 1);
+		if ( (door & 1) == 0 ) {
+			grid.or(position(door), last, Maze.S);
+		}
+
+		// the door of the chunk to the east, if it goes west (into us)
+		door = door(cx + 1, cy);
+		if ( (door & 1) != 0 ) {
+			grid.or(last, position(door), Maze.E);
+		}
+		return grid;
+	}
+
+	// The door of chunk (cx,cy): the low bit says north (0) or west (1), the rest where
+	private long door(long cx,long cy) {
+		return mix(~_seed, cx, cy);
+	}
+
+	private int position(long door) {
+		return (int)Math.floorMod(door >>> 1, (long)_size);
+	}
+
+	// Evict least recently used chunks (but never the one just added) while over budget
+	private void evict(Long keep) {
+		Iterator<Map.Entry<Long,Grid>> it = _chunks.entrySet().iterator();
+		while ( _bytes > _budget && it.hasNext() ) {
+			Map.Entry<Long,Grid> entry = it.next();
+			if ( entry.getKey().equals(keep) ) {
+				continue;
+			}
+			_bytes -= bytes(entry.getValue());
+			it.remove();
+			++_evictions;
+		}
+	}
+
+	// Bytes taken by a grid of 4 bit cells, rows padded out to whole words (see Grid)
+	private static long bytes(Grid grid) {
+		return ((long)grid.width() + 15) / 16 * 16 * grid.height() / 2;
+	}
+
+	// Chunk coordinates (each of which fits in an int), packed into one key
+	private static Long key(long cx,long cy) {
+		return Long.valueOf((cx << 32) ^ (cy & 0xFFFFFFFFL));
+	}
+
+	// Hash the seed and the chunk coordinates (with the finalizer of splitmix64)
+	private static long mix(long seed,long cx,long cy) {
+		long z = seed + cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -11,9 +11,6 @@
  * the maze will exhibit a strong diagonal bias (in this case, northwest to southeast).
  ********************************************************************************************/
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class BinaryTree extends Maze {
 	
 	private boolean _animate = false;
@@ -66,12 +63,14 @@ public class BinaryTree extends Maze {
 	 * overridden draw() method below. 
 	 ***************************************************************************************/
 	private void carvePassages() {
+		generating();
 		for ( int y=0; y < _h; ++y ) {
 			for ( int x=0; x < _w; ++x ) {
 				if ( _animate ) {
-					// draw (using animations)
-				    display(x,y);
-					
+					// move the "current cursor" (colored red)
+					cursor(x,y);
+				}
+				if ( _animate && _delay > 0 ) {
 					// try to sleep the thread for _delay seconds
 					try {
 						Thread.sleep((long)(_delay*1000));
@@ -80,28 +79,23 @@ public class BinaryTree extends Maze {
 					}
 				}
 					
-				// update the list of directories 
-				List<Integer> dirs = new ArrayList<Integer>();
-				if ( y > 0 ) dirs.add(new Integer(Maze.N));
-				if ( x > 0 ) dirs.add(new Integer(Maze.W));
+				// count the available directions: N (if y > 0), then W (if x > 0)
+				int dirs = (y > 0 ? 1 : 0) + (x > 0 ? 1 : 0);
 				
-				// recurse, if necessary 
-				if ( dirs.size() > 0 ) { 
-					int dir = ((Integer)dirs.get(_random.nextInt(dirs.size()))).intValue();
-					if ( dir != 0 ) {
-						int dx = x + Maze.DX(dir);
-						int dy = y + Maze.DY(dir);
-						_grid[y][x] |= dir;
-						_grid[dy][dx] |= Maze.OPPOSITE(dir);
-					}
+				// carve, if possible 
+				if ( dirs > 0 ) { 
+					int k = _random.nextInt(dirs);
+					int dir = ( y > 0 && k == 0 ) ? Maze.N : Maze.W;
+					carve(x,y,dir);
 				}
 			}
 		}
 		
-		// make one final call to "update" to display the last cell
+		// clear the "current cursor", so the last cell is drawn without it
 		if ( _animate ) {
-		    display(-1,-1);
+		    cursor(-1,-1);
 		}
+		generated();
 	}
 	
         /********************************************************************
@@ -112,18 +106,33 @@ public class BinaryTree extends Maze {
 	 * @param update
 	 *******************************************************************/
 	public void draw(boolean update) {
+		Renderer r = renderer();
 		if ( update || !_animate ) {
-			System.out.print((char)27+"[H");
+			r.home();
 			if ( !_animate ) {
-				System.out.print((char)27+"[2J");
+				r.clear();
 			}
 			super.draw();
 		} else {
-			System.out.print((char)27+"[2J");
+			// carve the passages, drawing as we go on the animator thread
+			r.clear();
+			startAnimation();
 			carvePassages();
+			finishAnimation();
+			
+			// output metadata
+			r.println(metadata().text());
+			r.flush();
 		}
 	}
 	
+	/********************************************************************
+	 * Carve the maze (when animating, without drawing it).
+	 *******************************************************************/
+	public void generate() {
+		carvePassages();
+	}
+	
 	// Need to stub out this method, otherwise it won't get called
 	// (i.e., java does not support "default method arguments" like 
 	// some other OO scripting languages do). 
@@ -132,58 +141,20 @@ public class BinaryTree extends Maze {
 	}
 
     /***************************************************************************************
-     * Display needs the (x,y) coordinates of where it is presently rendering, in 
-     * order to color the "Current cursor" cell a different color (in this case, 
-     * red). We've already used the symbols "x" and "y" in a previous implementation
-     * of this algorithm, so we'll name them "i" and "j" in the method signature instead.
+     * When animating, color red if "current" cursor, gray if empty.
      ***************************************************************************************/
-    protected void display(int i, int j) {
-	// Draw the "top row" of the maze
-	System.out.print((char)27 + "[H");
-	System.out.print(" ");
-	for ( int c=0; c < (_w*2) - 1; ++c ) {
-	    System.out.print("_");
-	}
-	System.out.println("");
-
-	// Step through the cells of the maze
-	for ( int y=0; y < _grid.length; ++y ) {
-	    System.out.print("|");
-	    for ( int x=0; x < _grid[0].length; ++x ) {
-		// Color gray if empty, red if "current" cursor
-		if ( _grid[y][x] == 0 ) {
-		    System.out.print((char)27 + "[47m");
-		}
-		if ( x == i && y == j ) {
-		    System.out.print((char)27 + "[41m");
-		}
-
-		// Render "bottom" using "S" switch
-		System.out.print((_grid[y][x] & Maze.S) != 0 ? " " : "_");
-
-		// Render "side" using "E" switch
-		if ( (_grid[y][x] & Maze.E) != 0 ) {
-		    System.out.print(((_grid[y][x] | _grid[y][x+1]) & Maze.S) != 0 ? " " : "_");
-		} else {
-		    System.out.print("|");
-		}
-		
-		// Stop coloring
-		if ( _grid[y][x] == 0 || ( x == i && y == j ) ) {
-		    System.out.print((char)27 + "[m");
+    protected Renderer createRenderer() {
+	return new Renderer(_grid,output()) {
+	    protected int color(int x,int y) {
+		if ( !_animate ) {
+		    return 0;
+		} else if ( x == _cursorX && y == _cursorY ) {
+		    return Renderer.RED;
+		} else if ( cell(x,y) == 0 ) {
+		    return Renderer.GRAY;
 		}
+		return 0;
 	    }
-	    System.out.println("");
-	}
-       
-	// Output metadata
-	System.out.println(metadata());
-    }
-
-    // 
-    // Override metadata to inform what type of maze we are carving.
-    //
-    protected String metadata() {
-	return super.metadata() + " [BinaryTree]";
+	};
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+/***********************************************************************
+ * Class CarveLog records how a maze was carved, one carve at a time, in
+ * a compact binary format which a Replayer can play back later without
+ * running the generator again.
+ *
+ * The log starts with a 16-byte header (the magic number "MZLG", the
+ * format version, and the width and height of the maze, as big-endian
+ * ints). Each carve then follows as a single varint (7 bits per byte,
+ * low bits first, high bit set on every byte but the last) holding
+ *
+ *     zigzag(cell - previous cell) << 2 | direction
+ *
+ * where cell is y*width + x, the previous cell is that of the carve
+ * before (0 for the first), zigzag maps small negative deltas to small
+ * values, and direction is 0, 1, 2 or 3 for N, S, E or W. Generators
+ * mostly carve next to where they last carved, so most carves take one
+ * or two bytes.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+public class CarveLog implements Closeable {
+	// Define class variables
+	public static final int MAGIC = 0x4D5A4C47;	// "MZLG"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+
+	// Directions, in the order of their 2-bit codes
+	public static final int[] DIRECTIONS = { Maze.N, Maze.S, Maze.E, Maze.W };
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// Define instance variables
+	private OutputStream _out = null;
+	private int _w = 0;
+	private int _h = 0;
+	private byte[] _buffer = new byte[BUFFER_SIZE];
+	private int _n = 0;
+	private long _prev = 0;
+	private long _steps = 0;
+
+	/**
+	 * Start a log of a w x h maze, writing to the given stream.
+	 */
+	public CarveLog(OutputStream out,int w,int h) {
+		_out = out;
+		_w = w;
+		_h = h;
+		putInt(MAGIC);
+		putInt(VERSION);
+		putInt(w);
+		putInt(h);
+	}
+
+	public int width() { return _w; }
+	public int height() { return _h; }
+
+	/**
+	 * Return the number of carves logged so far.
+	 */
+	public long steps() {
+		return _steps;
+	}
+
+	/**
+	 * Log the wall knocked down between (x,y) and its neighbor in the given direction.
+	 */
+	public void carve(int x,int y,int direction) {
+		long cell = (long)y*_w + x;
+		long delta = cell - _prev;
+		_prev = cell;
+
+		long value = (((delta << 1) ^ (delta >> 63)) << 2) | code(direction);
+		if ( _n > BUFFER_SIZE - 10 ) {
+			flush();
+		}
+		while ( (value & ~0x7FL) != 0 ) {
+			_buffer[_n++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		_buffer[_n++] = (byte)value;
+		++_steps;
+	}
+
+	/**
+	 * Return the 2-bit code (0 to 3) of the direction N, S, E or W.
+	 */
+	public static int code(int direction) {
+		return Integer.numberOfTrailingZeros(direction);
+	}
+
+	/**
+	 * Write out everything logged so far.
+	 */
+	public void flush() {
+		try {
+			_out.write(_buffer, 0, _n);
+			_out.flush();
+		} catch ( IOException ex ) {
+			throw new UncheckedIOException(ex);
+		}
+		_n = 0;
+	}
+
+	public void close() throws IOException {
+		flush();
+		_out.close();
+	}
+
+	private void putInt(int v) {
+		_buffer[_n++] = (byte)(v >>> 24);
+		_buffer[_n++] = (byte)(v >>> 16);
+		_buffer[_n++] = (byte)(v >>> 8);
+		_buffer[_n++] = (byte)v;
+	}
+}
@@ -6,8 +6,12 @@
  * 
  * @author psholtz
  ******************************************************************/
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+
 public class Driver {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		// configure the width and height
 		int w = Maze.DEFAULT_WIDTH;
 		int h = Maze.DEFAULT_HEIGHT;
@@ -15,6 +19,13 @@ public class Driver {
 		boolean useSeed = false;
 		boolean animate = false;
 		float delay = 0.04f;	
+		int fps = Animator.DEFAULT_FRAME_RATE;
+		String log = null;
+		long count = 0L;
+		String output = null;
+		int threads = 0;
+		boolean json = false;
+		boolean parallel = false;
 		
 		// ignore arguments that we don't understand
 		for ( int i=0; i < args.length; ++i ) {
@@ -35,9 +46,27 @@ public class Driver {
 						useSeed = true; 
 						seed = Long.parseLong(arg.substring(2));
 					}
+					else if ( t.equals("r") ) {
+						RandomSource.setDefault(arg.substring(2));
+					}
 					else if ( t.equals("d") ) {
 						delay = Float.parseFloat(arg.substring(2));
 					}
+					else if ( t.equals("f") ) {
+						fps = Integer.parseInt(arg.substring(2));
+					}
+					else if ( t.equals("l") ) {
+						log = arg.substring(2);
+					}
+					else if ( t.equals("n") ) {
+						count = Long.parseLong(arg.substring(2));
+					}
+					else if ( t.equals("o") ) {
+						output = arg.substring(2);
+					}
+					else if ( t.equals("j") ) {
+						threads = Integer.parseInt(arg.substring(2));
+					}
 				}
 			}
 			
@@ -49,15 +78,64 @@ public class Driver {
 					if ( t.equals("a") ) {
 						animate = true; 
 					}
+					else if ( t.equals("z") ) {
+						Grid.setLayout(Grid.MORTON);
+					}
+					else if ( t.equals("m") ) {
+						json = true;
+					}
+					else if ( t.equals("p") ) {
+						parallel = true;
+					}
 				}
 			}
 		}
 		
+		// generate a batch of mazes, one for each of count seeds (starting at the given seed)
+		if ( count > 0 ) {
+			final int bw = w, bh = h;
+			Batch batch = new Batch(new Batch.Generator() {
+				public Maze generate(long seed) {
+					return new BinaryTree(bw,bh,seed);
+				}
+			}, seed, count, threads);
+			batch.setJson(json);
+			batch.run(output);
+			return;
+		}
+
 		// render the maze
-		if ( useSeed ) {
-			new BinaryTree(w,h,animate,delay,seed).draw();
+		if ( parallel ) {
+			// carve on all cores (the parallel version does not animate)
+			Maze maze = useSeed ? new ParallelBinaryTree(w,h,seed) : new ParallelBinaryTree(w,h);
+			maze.draw();
+		} else {
+			boolean defer = animate || log != null;
+			float pause = animate ? delay : 0.0f;
+			Maze maze = useSeed ? new BinaryTree(w,h,defer,pause,seed) : new BinaryTree(w,h,defer,pause);
+			maze.setFrameRate(fps);
+			render(maze,log,animate,w,h);
+		}
+	}
+
+	/****************************************************************
+	 * Draw the maze, or, if given a log file, record how it is carved
+	 * (see Replay). A maze built to animate puts off carving until it
+	 * is drawn, so it can be recorded before it carves anything.
+	 ***************************************************************/
+	private static void render(Maze maze,String log,boolean animate,int w,int h) throws IOException {
+		if ( log == null ) {
+			maze.draw();
+			return;
+		}
+		CarveLog carveLog = new CarveLog(new FileOutputStream(log), w, h);
+		maze.record(carveLog);
+		if ( animate ) {
+			maze.draw();
 		} else {
-			new BinaryTree(w,h,animate,delay).draw();
+			maze.generate();
 		}
+		carveLog.close();
+		System.out.println("recorded " + carveLog.steps() + " steps to " + log);
 	}
-}
\ No newline at end of file
+}
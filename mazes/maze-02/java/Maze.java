@@ -6,7 +6,9 @@
  * @author psholtz
  *********************************************************************/
 
-import java.util.Random;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 
 public class Maze {
 	// Define class variables 
@@ -18,11 +20,18 @@ public class Maze {
 	public static final int DEFAULT_WIDTH = 10;
 	public static final int DEFAULT_HEIGHT = 10;
 
-	protected Random _random = null;
+	protected RandomSource _random = null;
 	protected Long _seed = null; 
+	protected Metadata _metadata = null;
 	protected int _w = 0;
 	protected int _h = 0;
-	protected int[][] _grid = null;
+	protected Grid _grid = null;
+	protected Renderer _renderer = null;
+	protected OutputStream _output = null;
+	protected Animator _animator = null;
+	protected int _fps = Animator.DEFAULT_FRAME_RATE;
+	private long _started = 0L;
+	protected CarveLog _log = null;
 	
 	// Define class methods
 	public static int DX(int direction) {
@@ -80,70 +89,178 @@ public class Maze {
 	}
 	public Maze(int w,int h) {
 		initialize(w,h);
-		_random = new Random();
+		_random = RandomSource.create();
+		_metadata = new Metadata(algorithm(),w,h,_seed);
 	}
 	public Maze(int w,int h,long seed) {
 		initialize(w,h);
-		_random = new Random(seed);
+		_random = RandomSource.create(seed);
 		_seed = new Long(seed);
+		_metadata = new Metadata(algorithm(),w,h,_seed);
 	}
 	private void initialize(int w,int h) {
 		_w = w; _h = h; 
-		_grid = new int[h][w];
-		for ( int j=0; j < h; ++j ) {
-			for ( int i=0; i < w; ++i ) {
-				_grid[j][i] = 0;
-			}
+		_grid = createGrid(w,h);
+	}
+
+	/***********************************************************************
+	 * Build the (empty) grid of cells. Subclasses needing more than the
+	 * four direction bits per cell may override to ask for a wider grid.
+	 ***********************************************************************/
+	protected Grid createGrid(int w,int h) {
+		return Grid.obtain(w,h,4);
+	}
+
+	/***********************************************************************
+	 * Return the contents of the cell at (x,y).
+	 ***********************************************************************/
+	protected int cell(int x,int y) {
+		return _grid.get(x,y);
+	}
+
+	/***********************************************************************
+	 * Knock down the wall between (x,y) and its neighbor in the given direction.
+	 ***********************************************************************/
+	protected void carve(int x,int y,int direction) {
+		_grid.link(x,y,direction);
+		_metadata.carved();
+		if ( _log != null ) {
+			_log.carve(x,y,direction);
 		}
+		if ( _animator != null ) {
+			_animator.carve(x,y,direction);
+		} else {
+			touch(x,y);
+			touch(x + DX(direction), y + DY(direction));
+		}
+	}
+
+	/***********************************************************************
+	 * Note that the cell at (x,y) has changed, so that an animation only
+	 * needs to redraw the cells which changed (see Renderer.update).
+	 ***********************************************************************/
+	protected void touch(int x,int y) {
+		if ( _animator != null ) {
+			_animator.touch(x,y);
+		} else if ( _renderer != null ) {
+			_renderer.touch(x,y);
+		}
+	}
+
+	/***********************************************************************
+	 * Move the "current cursor" of an animation to (x,y), or to nowhere
+	 * if x < 0.
+	 ***********************************************************************/
+	protected void cursor(int x,int y) {
+		if ( _animator != null ) {
+			_animator.cursor(x,y);
+		} else if ( _renderer != null ) {
+			_renderer.cursor(x,y);
+		}
+	}
+
+	/***********************************************************************
+	 * Record every carve from here on in the given log (see Replayer).
+	 ***********************************************************************/
+	public void record(CarveLog log) {
+		_log = log;
+	}
+
+	/***********************************************************************
+	 * Carve the passages of a maze built to animate (whose carving is put
+	 * off until it is drawn) without drawing it, e.g. to record() it.
+	 * Generators override this; the basic Maze has nothing to carve.
+	 ***********************************************************************/
+	public void generate() {
+	}
+
+	/***********************************************************************
+	 * Set the number of frames per second drawn while animating.
+	 ***********************************************************************/
+	public void setFrameRate(int fps) {
+		_fps = fps;
+	}
+
+	/***********************************************************************
+	 * Start drawing the maze on an Animator thread: from here until
+	 * finishAnimation(), carve() and touch() publish carve events to it
+	 * rather than drawing anything themselves.
+	 ***********************************************************************/
+	protected void startAnimation() {
+		_animator = new Animator(renderer(), _w, _fps);
+		_animator.start();
+	}
+
+	/***********************************************************************
+	 * Wait for the Animator to draw everything carved so far, and stop it.
+	 ***********************************************************************/
+	protected void finishAnimation() {
+		_animator.finish();
+		_animator = null;
 	}
 	
+	/***********************************************************************
+	 * Build the Renderer used to draw the maze. Subclasses may override
+	 * to color or draw cells differently (e.g., when animating).
+	 ***********************************************************************/
+	protected Renderer createRenderer() {
+		return new Renderer(_grid,output());
+	}
+
+	/***********************************************************************
+	 * Draw to the given stream rather than to standard output.
+	 ***********************************************************************/
+	public void setOutput(OutputStream out) {
+		_output = out;
+		_renderer = null;
+	}
+
+	protected OutputStream output() {
+		return ( _output != null ) ? _output : new FileOutputStream(FileDescriptor.out);
+	}
+
+	protected Renderer renderer() {
+		if ( _renderer == null ) {
+			_renderer = createRenderer();
+		}
+		return _renderer;
+	}
+
         /******************************************************************
 	 * Draw the grid, starting in the upper-left hand corner. 
 	 ******************************************************************/
 	public void draw() {
-		// draw the "top" line
-		System.out.print(" ");
-		for ( int i=0; i < (_w*2 - 1); ++i ) {
-			System.out.print("_");
-		}
-		System.out.println("");
-
-		// draw each row
-		for ( int j=0; j < _h; ++j ) {
-			System.out.print("|");
-			for ( int i=0; i < _w; ++i ) {
-				// render "bottom" using the "S" switch
-				System.out.print((_grid[j][i] & Maze.S) != 0 ? " " : "_");
-
-				// render "side" using "E" switch
-				if ( (_grid[j][i] & Maze.E) != 0 ) {
-					System.out.print(((_grid[j][i] | _grid[j][i+1]) & Maze.S) != 0 ? " " : "_" );
-				} else {
-					System.out.print("|");
-				}
-			}
-			System.out.println("");
-		}
+		// draw the "top" line, and then each row
+		Renderer r = renderer();
+		r.rows();
 
 		// output maze metadata
-		System.out.println(metadata());
-	}
-
-    //
-    // Generate generic maze metadata
-    protected String metadata() {
-	// Get main class name
-	StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-	StackTraceElement main = stack[stack.length-1];
-	String mainClass = main.getClassName();
-
-	// Generate remaining metadata
-	String meta = "main:" + mainClass + " " + _w + " " + _h;
-	if ( _seed != null ) {
-	    meta += " " + _seed;
-	} else {
-	    meta += " random";
-	}
-	return meta;
-    }
-}
\ No newline at end of file
+		r.println(metadata().text());
+		r.flush();
+	}
+
+	/***********************************************************************
+	 * Return the name of the algorithm, as given in the maze metadata.
+	 ***********************************************************************/
+	protected String algorithm() {
+		return getClass().getSimpleName();
+	}
+
+	/***********************************************************************
+	 * Return the metadata describing the maze: built once, when the maze
+	 * is constructed, and counting the passages carved since.
+	 ***********************************************************************/
+	public Metadata metadata() {
+		return _metadata;
+	}
+
+	/***********************************************************************
+	 * Bracket the carving of the passages, so as to time it for the metadata.
+	 ***********************************************************************/
+	protected void generating() {
+		_started = System.nanoTime();
+	}
+	protected void generated() {
+		_metadata.generated(System.nanoTime() - _started);
+	}
+}
@@ -0,0 +1,141 @@
+/********************************************************************************************
+ * Class ParallelBinaryTree carves the same kind of maze as BinaryTree, but spreads the work
+ * over the cores of the machine.
+ *
+ * In the binary tree algorithm every cell makes its own decision (carve north or west),
+ * independently of every other cell, so the grid can be split into bands of rows and the
+ * bands carved at the same time on a ForkJoinPool.
+ *
+ * So that the maze depends only on the seed, and not on how many cores carve it, bands are
+ * always BAND_HEIGHT rows tall, and band k always draws from the k-th RandomSource split off
+ * a source seeded with the maze seed (see RandomSource.forSplitting). Which thread carves which
+ * band does not matter.
+ *
+ * Rows of the Grid never share a word (and the tiles of a MortonGrid are exactly one band
+ * tall), so two bands never write to the same word, with one exception: a cell in the first
+ * row of a band which carves north must also mark the last row of the band above. Those south
+ * walls are knocked down in a final (sequential) pass, once all the bands are done.
+ *
+ * The bands write straight to the Grid, rather than through carve(), and each counts its own
+ * passages; the counts are added up, into the maze's Metadata, once the bands are done.
+ ********************************************************************************************/
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelBinaryTree extends Maze {
+
+	// Define class variables
+	public static final int BAND_HEIGHT = 64;
+
+	// Define instance variables
+	private RandomSource[] _streams = null;
+
+	//
+	// Standard Constructors
+	//
+	public ParallelBinaryTree(int w,int h) {
+		super(w,h);
+		initialize(_random.nextLong(), ForkJoinPool.commonPool());
+	}
+	public ParallelBinaryTree(int w,int h,long seed) {
+		this(w,h,seed,ForkJoinPool.commonPool());
+	}
+	public ParallelBinaryTree(int w,int h,long seed,ForkJoinPool pool) {
+		super(w,h,seed);
+		initialize(seed, pool);
+	}
+
+	private void initialize(long seed,ForkJoinPool pool) {
+		// One random stream per band, split off in band order
+		int bands = (_h + BAND_HEIGHT - 1) / BAND_HEIGHT;
+		RandomSource root = RandomSource.forSplitting(seed);
+		_streams = new RandomSource[bands];
+		for ( int k=0; k < bands; ++k ) {
+			_streams[k] = root.split();
+		}
+
+		generating();
+		long edges = pool.invoke(new Bands(0, bands));
+		stitch();
+		generated();
+		_metadata.setEdges(edges);
+	}
+
+	/****************************************************************************************
+	 * Carve the rows of band k, which start at y = k*BAND_HEIGHT.
+	 *
+	 * Same rule as BinaryTree: carve N or W at random, or whichever one is available, except
+	 * that north walls on the first row of the band are only marked on this side (see stitch).
+	 * Return the number of passages carved (counting those stitch() will finish).
+	 ***************************************************************************************/
+	private long carveBand(int k) {
+		RandomSource random = _streams[k];
+		long edges = 0L;
+		int y0 = k * BAND_HEIGHT;
+		int y1 = Math.min(_h, y0 + BAND_HEIGHT);
+		for ( int y=y0; y < y1; ++y ) {
+			for ( int x=0; x < _w; ++x ) {
+				int dir;
+				if ( y > 0 && x > 0 ) {
+					dir = random.nextBoolean() ? Maze.N : Maze.W;
+				} else if ( y > 0 ) {
+					dir = Maze.N;
+				} else if ( x > 0 ) {
+					dir = Maze.W;
+				} else {
+					continue;
+				}
+
+				if ( dir == Maze.N && y == y0 ) {
+					_grid.or(x,y,Maze.N);
+				} else {
+					_grid.link(x,y,dir);
+				}
+				++edges;
+			}
+		}
+		return edges;
+	}
+
+	/****************************************************************************************
+	 * Knock down the south side of every north wall carved on the first row of a band.
+	 ***************************************************************************************/
+	private void stitch() {
+		for ( int y=BAND_HEIGHT; y < _h; y += BAND_HEIGHT ) {
+			for ( int x=0; x < _w; ++x ) {
+				if ( (cell(x,y) & Maze.N) != 0 ) {
+					_grid.or(x,y-1,Maze.S);
+				}
+			}
+		}
+	}
+
+	/****************************************************************************************
+	 * Carve the bands [from,to), splitting the range in half until only one band is left, and
+	 * return the number of passages carved.
+	 ***************************************************************************************/
+	@SuppressWarnings("serial")
+	private class Bands extends RecursiveTask<Long> {
+		private int _from;
+		private int _to;
+
+		Bands(int from,int to) {
+			_from = from;
+			_to = to;
+		}
+
+		protected Long compute() {
+			if ( _to - _from == 1 ) {
+				return carveBand(_from);
+			} else if ( _to <= _from ) {
+				return 0L;
+			}
+			int mid = (_from + _to) >>> 1;
+			Bands left = new Bands(_from, mid);
+			left.fork();
+			long right = new Bands(mid, _to).compute();
+			return right + left.join();
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/***********************************************************************
+ * Class Replayer plays back a CarveLog into a Grid, one carve at a time,
+ * and can seek to any step of the log.
+ *
+ * The log is mapped into memory, and read through once when it is
+ * opened: this counts the steps, and takes a snapshot of the grid every
+ * "interval" steps. Seeking to step n restores the latest snapshot at or
+ * before n (or, when moving forward by less than an interval, just keeps
+ * going from where we are), and replays at most one interval of carves
+ * from there, however long the log is.
+ *
+ * There are at least MIN_SNAPSHOTS snapshots (more, if they fit in a
+ * memory budget), but never fewer than MIN_INTERVAL steps apart. As
+ * many as fit in the budget are kept whole, evenly spaced; the rest are
+ * kept only as the words of the grid which changed since the snapshot
+ * before (and the bits which flipped in them). There are only ever
+ * deltas when there are MIN_SNAPSHOTS snapshots, and together they
+ * take a few times the size of one whole snapshot (over the budget).
+ * Such a snapshot is rebuilt from the whole one before it and the
+ * changes since, so a grid too large for the budget never falls back
+ * to replaying the log from the start.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class Replayer {
+	// Define class variables
+	public static final long DEFAULT_SNAPSHOT_BYTES = 64L << 20;
+	public static final int MIN_INTERVAL = 1 << 12;
+	public static final int MIN_SNAPSHOTS = 16;
+
+	// Define instance variables
+	private ByteBuffer _log = null;
+	private int _w = 0;
+	private int _h = 0;
+	private Grid _grid = null;
+	private long _steps = 0;
+
+	// Where we are: steps replayed, byte offset of the next carve, and cell of the last
+	private long _step = 0;
+	private int _offset = 0;
+	private long _prev = 0;
+
+	// Snapshot k is the grid (and where we were) after k*_interval steps: every _spacing-th
+	// one is kept whole, and the others as the words changed since the one before
+	private long _interval = 0;
+	private int _spacing = 0;
+	private long[][] _snapshots = null;
+	private int[][] _changed = null;	// words changed since snapshot k-1
+	private long[][] _flips = null;		// and the bits flipped in each of them
+	private int[] _offsets = null;
+	private long[] _prevs = null;
+	private long[] _words = null;		// scratch, to rebuild a snapshot in
+
+	/**
+	 * Open the log in the given file, keeping at most (about) snapshotBytes of snapshots.
+	 */
+	public Replayer(File file) throws IOException {
+		this(file, DEFAULT_SNAPSHOT_BYTES);
+	}
+	public Replayer(File file,long snapshotBytes) throws IOException {
+		this(map(file), snapshotBytes);
+	}
+	public Replayer(ByteBuffer log,long snapshotBytes) {
+		_log = log;
+		if ( log.limit() < CarveLog.HEADER_SIZE || log.getInt(0) != CarveLog.MAGIC ) {
+			throw new IllegalArgumentException("not a carve log");
+		}
+		if ( log.getInt(4) != CarveLog.VERSION ) {
+			throw new IllegalArgumentException("unsupported carve log version: " + log.getInt(4));
+		}
+		_w = log.getInt(8);
+		_h = log.getInt(12);
+		_grid = new Grid(_w,_h);
+
+		// every carve ends with the one byte which has its high bit clear
+		for ( int i=CarveLog.HEADER_SIZE; i < log.limit(); ++i ) {
+			if ( log.get(i) >= 0 ) {
+				++_steps;
+			}
+		}
+
+		index(snapshotBytes);
+	}
+
+	public int width() { return _w; }
+	public int height() { return _h; }
+
+	/**
+	 * Return the grid, as it stands after position() steps.
+	 */
+	public Grid grid() {
+		return _grid;
+	}
+
+	/**
+	 * Return the total number of steps in the log.
+	 */
+	public long steps() {
+		return _steps;
+	}
+
+	/**
+	 * Return the number of steps replayed so far.
+	 */
+	public long position() {
+		return _step;
+	}
+
+	public boolean hasNext() {
+		return _step < _steps;
+	}
+
+	/**
+	 * Replay the next carve, and return it as a CarveEvents event (cell and direction).
+	 */
+	public long next() {
+		if ( _step >= _steps ) {
+			throw new NoSuchElementException("no steps left: all " + _steps + " replayed");
+		}
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = _log.get(_offset++);
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while ( b < 0 );
+
+		int direction = CarveLog.DIRECTIONS[(int)(value & 3)];
+		long zigzag = value >>> 2;
+		long cell = _prev + ((zigzag >>> 1) ^ -(zigzag & 1));
+		_prev = cell;
+		++_step;
+
+		int x = (int)(cell % _w), y = (int)(cell / _w);
+		_grid.or(x,y,direction);
+		_grid.or(x + Maze.DX(direction), y + Maze.DY(direction), Maze.OPPOSITE(direction));
+		return CarveEvents.event((int)cell, direction);
+	}
+
+	/**
+	 * Bring the grid to where it stood after the given number of steps.
+	 */
+	public void seek(long step) {
+		if ( step < 0 || step > _steps ) {
+			throw new IllegalArgumentException("step " + step + " not in [0," + _steps + "]");
+		}
+		if ( step < _step || step - _step > _interval ) {
+			restore((int)(step / _interval));
+		}
+		while ( _step < step ) {
+			next();
+		}
+	}
+
+	// Pick the snapshot interval, and take the snapshots in one pass through the log
+	private void index(long snapshotBytes) {
+		long gridBytes = ((long)_w + 15) / 16 * 16 * _h / 2;
+		long whole = snapshotBytes / Math.max(1, gridBytes);
+		long count = Math.min(Math.max(MIN_SNAPSHOTS, whole), _steps + 1);
+		_interval = Math.max(MIN_INTERVAL, (_steps + count - 1) / count);
+
+		// keep as many whole snapshots as fit, evenly spaced (snapshot 0 is the empty grid)
+		int n = (int)(_steps / _interval) + 1;
+		if ( whole >= n - 1 ) {
+			_spacing = 1;
+		} else if ( whole > 0 ) {
+			_spacing = (int)((n - 1 + whole - 1) / whole);
+		} else {
+			_spacing = n;
+		}
+		_snapshots = new long[n][];
+		_changed = new int[n][];
+		_flips = new long[n][];
+		_offsets = new int[n];
+		_prevs = new long[n];
+
+		_offset = CarveLog.HEADER_SIZE;
+		_offsets[0] = _offset;
+		long[] last = null;
+		for ( int k=1; k < n; ++k ) {
+			while ( _step < k * _interval ) {
+				next();
+			}
+			long[] words = _grid.snapshot();
+			if ( k % _spacing == 0 ) {
+				_snapshots[k] = words;
+			} else {
+				changes(k, last, words);
+			}
+			last = words;
+			_offsets[k] = _offset;
+			_prevs[k] = _prev;
+		}
+		restore(0);
+	}
+
+	// Keep the words which changed from last (or the empty grid, if null) to words, as snapshot k
+	private void changes(int k,long[] last,long[] words) {
+		int count = 0;
+		for ( int i=0; i < words.length; ++i ) {
+			if ( words[i] != ( last != null ? last[i] : 0L ) ) {
+				++count;
+			}
+		}
+		_changed[k] = new int[count];
+		_flips[k] = new long[count];
+		count = 0;
+		for ( int i=0; i < words.length; ++i ) {
+			long flips = words[i] ^ ( last != null ? last[i] : 0L );
+			if ( flips != 0L ) {
+				_changed[k][count] = i;
+				_flips[k][count++] = flips;
+			}
+		}
+		if ( _words == null ) {
+			_words = new long[words.length];
+		}
+	}
+
+	private void restore(int k) {
+		int j = k - k % _spacing;
+		if ( j == k ) {
+			if ( _snapshots[k] == null ) {
+				_grid.clear();
+			} else {
+				_grid.restore(_snapshots[k]);
+			}
+		} else {
+			// rebuild snapshot k from the whole snapshot j, and the changes since
+			if ( _snapshots[j] == null ) {
+				Arrays.fill(_words, 0L);
+			} else {
+				System.arraycopy(_snapshots[j], 0, _words, 0, _words.length);
+			}
+			for ( int i=j + 1; i <= k; ++i ) {
+				int[] changed = _changed[i];
+				long[] flips = _flips[i];
+				for ( int c=0; c < changed.length; ++c ) {
+					_words[changed[c]] ^= flips[c];
+				}
+			}
+			_grid.restore(_words);
+		}
+		_step = k * _interval;
+		_offset = _offsets[k];
+		_prev = _prevs[k];
+	}
+
+	private static ByteBuffer map(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if ( channel.size() > Integer.MAX_VALUE ) {
+				throw new IllegalArgumentException("carve log too large to map: " + file);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+	}
+}
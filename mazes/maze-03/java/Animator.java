@@ -0,0 +1,162 @@
+/***********************************************************************
+ * Class Animator draws a maze while it is being carved, on a thread of
+ * its own, so that carving never waits on the terminal.
+ *
+ * The generator publishes carve events into a CarveEvents ring, and
+ * sets the "current cursor" cell (if it has one) with cursor(). Once per
+ * frame the animator thread drains every event waiting in the ring,
+ * marks the cells they changed as dirty, and has the Renderer redraw
+ * them. However many cells were carved since the last frame, they are
+ * drawn together; only the latest cursor position is ever drawn.
+ *
+ * If the generator gets so far ahead that the ring fills up, events are
+ * dropped rather than making the generator wait, and the next frame
+ * repaints the whole grid instead.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class Animator implements Runnable {
+	// Define class variables
+	public static final int DEFAULT_FRAME_RATE = 30;
+	private static final int BATCH = 1024;
+
+	// Define instance variables
+	private final Renderer _renderer;
+	private final CarveEvents _events;
+	private final int _w;
+	private final long _period;
+	private final long[] _batch = new long[BATCH];
+	private Thread _thread = null;
+
+	private volatile boolean _overflow = false;
+	private volatile boolean _done = false;
+	private volatile long _cursor = -1;
+
+	/**
+	 * Build an animator drawing a grid of width w with the given renderer, at
+	 * (at most) the given number of frames per second.
+	 */
+	public Animator(Renderer renderer,int w,int fps) {
+		this(renderer,w,fps,new CarveEvents());
+	}
+	public Animator(Renderer renderer,int w,int fps,CarveEvents events) {
+		if ( fps < 1 ) {
+			throw new IllegalArgumentException("frame rate: " + fps);
+		}
+		_renderer = renderer;
+		_events = events;
+		_w = w;
+		_period = TimeUnit.SECONDS.toNanos(1) / fps;
+	}
+
+	/**
+	 * Start the animator thread.
+	 */
+	public void start() {
+		_thread = new Thread(this, "Animator");
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	/**
+	 * Wait for the animator to draw every event published so far, and stop it.
+	 */
+	public void finish() {
+		_done = true;
+		LockSupport.unpark(_thread);
+		boolean interrupted = false;
+		while ( _thread.isAlive() ) {
+			try {
+				_thread.join();
+			} catch ( InterruptedException ex ) {
+				interrupted = true;
+			}
+		}
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Publish the wall knocked down between (x,y) and its neighbor in the given direction.
+	 */
+	public void carve(int x,int y,int direction) {
+		publish(CarveEvents.event(y*_w + x, direction));
+	}
+
+	/**
+	 * Publish a change to the cell at (x,y) other than a carve.
+	 */
+	public void touch(int x,int y) {
+		publish(CarveEvents.event(y*_w + x, (int)CarveEvents.TOUCH));
+	}
+
+	/**
+	 * Move the "current cursor" to (x,y), or to nowhere if x < 0.
+	 */
+	public void cursor(int x,int y) {
+		_cursor = ( x < 0 ) ? -1 : (long)y*_w + x;
+	}
+
+	private void publish(long event) {
+		if ( !_events.offer(event) ) {
+			_overflow = true;
+		}
+	}
+
+	/**
+	 * Draw a frame every period until finish() is called, then draw what is left.
+	 */
+	public void run() {
+		long next = System.nanoTime();
+		while ( true ) {
+			boolean done = _done;
+			frame();
+			if ( done ) {
+				break;
+			}
+			next += _period;
+			long wait = next - System.nanoTime();
+			if ( wait > 0 ) {
+				LockSupport.parkNanos(this, wait);
+			} else {
+				next = System.nanoTime();
+			}
+		}
+	}
+
+	// Drain the ring into the renderer's dirty cells, and redraw them
+	private void frame() {
+		if ( _overflow ) {
+			_overflow = false;
+			_renderer.invalidate();
+		}
+
+		int n;
+		while ( (n = _events.drain(_batch, BATCH)) > 0 ) {
+			for ( int i=0; i < n; ++i ) {
+				int cell = CarveEvents.cell(_batch[i]);
+				int direction = CarveEvents.direction(_batch[i]);
+				int x = cell % _w, y = cell / _w;
+				_renderer.touch(x,y);
+				if ( direction != CarveEvents.TOUCH ) {
+					_renderer.touch(x + Maze.DX(direction), y + Maze.DY(direction));
+				}
+			}
+		}
+
+		long cursor = _cursor;
+		if ( cursor < 0 ) {
+			_renderer.cursor(-1,-1);
+		} else {
+			_renderer.cursor((int)(cursor % _w), (int)(cursor / _w));
+		}
+
+		_renderer.update();
+		_renderer.flush();
+	}
+}
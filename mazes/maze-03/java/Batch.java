@@ -0,0 +1,227 @@
+/***********************************************************************
+ * Class Batch generates one maze for each seed in a range, spreading
+ * the seeds over the cores of the machine, and writes them all (in the
+ * order they finish, each followed by its metadata line) to one file.
+ * The metadata line is either the usual text, or (see setJson) a JSON
+ * object which also gives the time taken to carve the maze and the
+ * number of passages carved.
+ *
+ * The seed range is split in half, and in half again, down to chunks
+ * of GRAIN seeds, on a (work-stealing) ForkJoinPool. Each worker thread
+ * keeps its own output buffer, Renderer and grid: once a maze is drawn,
+ * its grid is recycled (see Grid.obtain), so the next maze of the same
+ * size carved on that thread reuses it. A finished maze first reserves
+ * a stretch of the file as long as its drawing, and is then written
+ * there (by positional writes, however many it takes), so mazes never
+ * interleave.
+ *
+ * Every maze is timed (carving and drawing), and run() reports the
+ * throughput, in mazes per second, and the latency percentiles.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Batch {
+	// Define class variables
+	public static final int GRAIN = 64;
+
+	/**
+	 * Carves the maze for a seed (e.g., by calling the generator's (w,h,seed) constructor).
+	 */
+	public interface Generator {
+		Maze generate(long seed);
+	}
+
+	// Define instance variables
+	private Generator _generator = null;
+	private long _first = 0;
+	private long _count = 0;
+	private int _threads = 0;
+	private boolean _json = false;
+	private FileChannel _out = null;
+	private AtomicLong _end = new AtomicLong();	// where the next maze goes in the file
+
+	// Per-thread state, and every worker made so far (for the report)
+	private ThreadLocal<Worker> _worker = new ThreadLocal<Worker>();
+	private Queue<Worker> _workers = new ConcurrentLinkedQueue<Worker>();
+
+	/**
+	 * Prepare to generate count mazes, for the seeds first through first+count-1,
+	 * on the given number of threads (or as many as there are cores, if 0).
+	 */
+	public Batch(Generator generator,long first,long count,int threads) {
+		if ( count < 1 ) {
+			throw new IllegalArgumentException("batch must have at least one maze: " + count);
+		}
+		_generator = generator;
+		_first = first;
+		_count = count;
+		_threads = ( threads > 0 ) ? threads : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Follow each maze with its metadata as JSON, rather than as text.
+	 */
+	public void setJson(boolean json) {
+		_json = json;
+	}
+
+	/**
+	 * Generate the mazes, writing them to the given file (or, if null, only
+	 * carving them), and report on standard output how long it took.
+	 */
+	public void run(String file) throws IOException {
+		if ( file != null ) {
+			_out = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			_end.set(0L);
+		}
+		ForkJoinPool pool = new ForkJoinPool(_threads);
+		long start = System.nanoTime();
+		try {
+			pool.invoke(new Seeds(_first, _first + _count));
+		} finally {
+			pool.shutdown();
+			if ( _out != null ) {
+				_out.close();
+			}
+		}
+		report(System.nanoTime() - start, file);
+	}
+
+	/**
+	 * Carve (and draw) the maze for one seed, on the calling worker thread.
+	 */
+	private void generate(long seed) {
+		Worker worker = worker();
+		long start = System.nanoTime();
+
+		Maze maze = _generator.generate(seed);
+		if ( _out != null ) {
+			worker.write(maze);
+		}
+		Grid.recycle(maze._grid);
+
+		worker.time(System.nanoTime() - start);
+	}
+
+	private Worker worker() {
+		Worker worker = _worker.get();
+		if ( worker == null ) {
+			worker = new Worker();
+			_worker.set(worker);
+			_workers.add(worker);
+		}
+		return worker;
+	}
+
+	// Print the throughput, and the latency percentiles over every maze
+	private void report(long elapsed,String file) {
+		long[] times = new long[(int)Math.min(_count, Integer.MAX_VALUE)];
+		int n = 0;
+		for ( Worker worker : _workers ) {
+			System.arraycopy(worker._times, 0, times, n, worker._n);
+			n += worker._n;
+		}
+		Arrays.sort(times, 0, n);
+
+		System.out.println("batch: " + _count + " mazes (seeds " + _first + " to " + (_first + _count - 1) + ") on " + _threads + " threads"
+				   + ( file != null ? ", written to " + file : "" ));
+		System.out.println(String.format("time: %.3f s, throughput: %.0f mazes/sec", elapsed / 1e9, _count / (elapsed / 1e9)));
+		System.out.println(String.format("latency per maze: p50 %s, p99 %s, max %s",
+						 micros(times[percentile(n, 50)]), micros(times[percentile(n, 99)]), micros(times[n-1])));
+	}
+
+	private static int percentile(int n,int p) {
+		return (int)Math.min(n - 1, ((long)n * p + 99) / 100 - 1);
+	}
+
+	private static String micros(long nanos) {
+		return String.format("%.1f us", nanos / 1e3);
+	}
+
+	/**
+	 * Generate the mazes for the seeds [from,to), splitting the range in half until
+	 * it is no bigger than GRAIN.
+	 */
+	@SuppressWarnings("serial")
+	private class Seeds extends RecursiveAction {
+		private long _from;
+		private long _to;
+
+		Seeds(long from,long to) {
+			_from = from;
+			_to = to;
+		}
+
+		protected void compute() {
+			if ( _to - _from <= GRAIN ) {
+				for ( long seed=_from; seed < _to; ++seed ) {
+					generate(seed);
+				}
+			} else {
+				long mid = _from + (_to - _from) / 2;
+				invokeAll(new Seeds(_from, mid), new Seeds(mid, _to));
+			}
+		}
+	}
+
+	/**
+	 * What each worker thread keeps to itself: its output buffer, the Renderer
+	 * drawing into it (kept for as long as the worker's grid is reused), and
+	 * the time taken by each maze it generated.
+	 */
+	private class Worker {
+		private Buffer _buffer = new Buffer();
+		private Renderer _renderer = null;
+		private long[] _times = new long[1024];
+		private int _n = 0;
+
+		void write(Maze maze) {
+			if ( _renderer == null || _renderer._grid != maze._grid ) {
+				_renderer = new Renderer(maze._grid, _buffer);
+			}
+			_buffer.reset();
+			_renderer.rows();
+			Metadata metadata = maze.metadata();
+			_renderer.println(_json ? metadata.json() : metadata.text());
+			_renderer.flush();
+			try {
+				ByteBuffer bytes = _buffer.bytes();
+				long position = _end.getAndAdd(bytes.remaining());
+				while ( bytes.hasRemaining() ) {
+					position += _out.write(bytes, position);
+				}
+			} catch ( IOException ex ) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		void time(long nanos) {
+			if ( _n == _times.length ) {
+				_times = Arrays.copyOf(_times, _n * 2);
+			}
+			_times[_n++] = nanos;
+		}
+	}
+
+	// A ByteArrayOutputStream whose contents can be written out without copying
+	private static class Buffer extends ByteArrayOutputStream {
+		ByteBuffer bytes() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************
+ * Time the "random frontier" Prim against WeightedPrim, over a range
+ * of (square) maze sizes.
+ *
+ * Each size is carved a few times first to warm up the JIT, and then
+ * timed over several seeds; we report the mean time per maze and per
+ * cell. Usage:
+ *
+ * <pre>
+ * > java Benchmark [size ...]
+ * </pre>
+ *
+ * @author psholtz
+ ******************************************************************/
+public class Benchmark {
+	// Define class variables
+	private static final int[] DEFAULT_SIZES = { 100, 500, 1000, 2000 };
+	private static final int WARMUP = 3;
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		int[] sizes = DEFAULT_SIZES;
+		if ( args.length > 0 ) {
+			sizes = new int[args.length];
+			for ( int i=0; i < args.length; ++i ) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		System.out.println(String.format("%-24s %8s %12s %10s", "algorithm", "size", "ms/maze", "ns/cell"));
+		for ( int i=0; i < sizes.length; ++i ) {
+			int n = sizes[i];
+			report("Prim", n, time(false, n));
+			report("WeightedPrim(random)", n, time(true, n));
+		}
+	}
+
+	// Return the mean time (in nanoseconds) to carve an n x n maze
+	private static double time(boolean weighted,int n) {
+		for ( int i=0; i < WARMUP; ++i ) {
+			carve(weighted, n, i);
+		}
+		long start = System.nanoTime();
+		for ( int i=0; i < RUNS; ++i ) {
+			carve(weighted, n, WARMUP + i);
+		}
+		return (System.nanoTime() - start) / (double)RUNS;
+	}
+
+	private static Maze carve(boolean weighted,int n,long seed) {
+		return weighted ? new WeightedPrim(n,n,seed) : new Prim(n,n,seed);
+	}
+
+	private static void report(String name,int n,double nanos) {
+		System.out.println(String.format("%-24s %8s %12.2f %10.1f", name, n + "x" + n, nanos / 1e6, nanos / ((double)n * n)));
+	}
+}
@@ -0,0 +1,129 @@
+/***********************************************************************
+ * Class IndexedHeap is a binary min-heap of the integers 0 through n-1
+ * (for us, cell indices), each with an int priority.
+ *
+ * Unlike java.util.PriorityQueue, everything is held in flat int[]
+ * arrays, so no element is ever boxed, and the position of each
+ * element in the heap is tracked so that its priority can be lowered
+ * in place ("decrease-key") rather than inserting a duplicate.
+ *
+ * Ties are broken on the element itself, so the order in which
+ * elements come off the heap depends only on their priorities.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.Arrays;
+
+public class IndexedHeap {
+	// Define instance variables
+	private int[] _heap = null;		// elements, in heap order
+	private int[] _pos = null;		// position of each element in _heap, or -1
+	private int[] _priority = null;	// priority of each element
+	private int _size = 0;
+
+	/**
+	 * Build an empty heap able to hold the elements 0 through n-1.
+	 */
+	public IndexedHeap(int n) {
+		_heap = new int[n];
+		_pos = new int[n];
+		_priority = new int[n];
+		clear();
+	}
+
+	public int size() { return _size; }
+	public boolean isEmpty() { return _size == 0; }
+
+	public boolean contains(int i) {
+		return _pos[i] >= 0;
+	}
+
+	public int priority(int i) {
+		return _priority[i];
+	}
+
+	/**
+	 * Remove every element from the heap.
+	 */
+	public void clear() {
+		Arrays.fill(_pos, -1);
+		_size = 0;
+	}
+
+	/**
+	 * Add element i with the given priority or, if i is already in the
+	 * heap with a higher priority, lower its priority to the one given.
+	 *
+	 * @return true if the heap was changed.
+	 */
+	public boolean offer(int i,int priority) {
+		int p = _pos[i];
+		if ( p < 0 ) {
+			p = _size++;
+			_heap[p] = i;
+			_pos[i] = p;
+		} else if ( priority >= _priority[i] ) {
+			return false;
+		}
+		_priority[i] = priority;
+		siftUp(p);
+		return true;
+	}
+
+	/**
+	 * Remove and return the element with the lowest priority.
+	 */
+	public int poll() {
+		int top = _heap[0];
+		_pos[top] = -1;
+		if ( --_size > 0 ) {
+			int last = _heap[_size];
+			_heap[0] = last;
+			_pos[last] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	private boolean less(int a,int b) {
+		int pa = _priority[a], pb = _priority[b];
+		return pa < pb || ( pa == pb && a < b );
+	}
+
+	private void siftUp(int p) {
+		int i = _heap[p];
+		while ( p > 0 ) {
+			int parent = (p - 1) >>> 1;
+			int j = _heap[parent];
+			if ( !less(i,j) ) {
+				break;
+			}
+			_heap[p] = j;
+			_pos[j] = p;
+			p = parent;
+		}
+		_heap[p] = i;
+		_pos[i] = p;
+	}
+
+	private void siftDown(int p) {
+		int i = _heap[p];
+		int half = _size >>> 1;
+		while ( p < half ) {
+			int child = 2*p + 1;
+			int j = _heap[child];
+			if ( child + 1 < _size && less(_heap[child+1], j) ) {
+				j = _heap[++child];
+			}
+			if ( !less(j,i) ) {
+				break;
+			}
+			_heap[p] = j;
+			_pos[j] = p;
+			p = child;
+		}
+		_heap[p] = i;
+		_pos[i] = p;
+	}
+}
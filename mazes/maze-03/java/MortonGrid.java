@@ -0,0 +1,103 @@
+/***********************************************************************
+ * Class MortonGrid is a Grid whose cells are laid out in Z-order (the
+ * Morton order) rather than row by row.
+ *
+ * The generators wander the grid in random 2D walks. Row by row, every
+ * step north or south lands width cells away, on another cache line,
+ * and on a big enough maze on another page. Here the grid is cut into
+ * tiles of 64 x 64 cells, stored one after another (row by row), and
+ * the cells of a tile are ordered by interleaving the bits of their x
+ * and y: x in the even bits, y in the odd ones. Cells close together in
+ * 2D are then close together in memory at every scale, e.g. a 4 x 4
+ * block of 4-bit cells shares one long, a cache line holds a 16 x 8
+ * block, and one tile is a few KB.
+ *
+ * Stepping to a neighbor within a tile needs no multiplication: adding
+ * 1 to x, say, is adding 1 to the even bits alone, which we do by
+ * filling the odd bits with 1s so that the carry passes over them.
+ *
+ * Tiles are as tall as the bands of ParallelBinaryTree, so its bands
+ * still never share a word.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+public class MortonGrid extends Grid {
+	// Define class variables
+	public static final int TILE_SHIFT = 6;
+	public static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+	private static final int MASK = TILE_SIZE - 1;
+	private static final long X_BITS = 0x555L;	// the bits of x, in the index of a cell within its tile
+	private static final long Y_BITS = 0xAAAL;	// and the bits of y
+
+	// SPREAD[v] has the 6 bits of v in its even bits
+	private static final int[] SPREAD = new int[TILE_SIZE];
+	static {
+		for ( int v=0; v < TILE_SIZE; ++v ) {
+			int spread = 0;
+			for ( int b=0; b < TILE_SHIFT; ++b ) {
+				spread |= ((v >>> b) & 1) << (2*b);
+			}
+			SPREAD[v] = spread;
+		}
+	}
+
+	// Define instance variables
+	private int _tilesAcross = 0;
+
+	/**
+	 * Initialize a new (empty) grid of the given width and height,
+	 * optionally specifying the number of bits (4 or 8) per cell.
+	 */
+	public MortonGrid(int w,int h) {
+		this(w,h,4);
+	}
+	public MortonGrid(int w,int h,int bits) {
+		super(w,h,bits,cells(w,h));
+		_tilesAcross = (w + MASK) >>> TILE_SHIFT;
+	}
+
+	/**
+	 * Index the cell (x,y) by its tile (high bits) and its Z-order within the tile (low bits).
+	 */
+	protected long index(int x,int y) {
+		long tile = (long)(y >>> TILE_SHIFT) * _tilesAcross + (x >>> TILE_SHIFT);
+		return (tile << (2*TILE_SHIFT)) | SPREAD[x & MASK] | (SPREAD[y & MASK] << 1);
+	}
+
+	/**
+	 * Step from the cell at index i by adding to (or taking from) just the bits of x or
+	 * of y, unless that would take us off the edge of the tile.
+	 */
+	protected long neighbor(long i,int x,int y,int direction) {
+		switch ( direction ) {
+		case Maze.E:
+			if ( (x & MASK) != MASK ) {
+				return (((i | Y_BITS) + 1) & X_BITS) | (i & ~X_BITS);
+			}
+			break;
+		case Maze.W:
+			if ( (x & MASK) != 0 ) {
+				return (((i & X_BITS) - 1) & X_BITS) | (i & ~X_BITS);
+			}
+			break;
+		case Maze.S:
+			if ( (y & MASK) != MASK ) {
+				return (((i | X_BITS) + 2) & Y_BITS) | (i & ~Y_BITS);
+			}
+			break;
+		case Maze.N:
+			if ( (y & MASK) != 0 ) {
+				return (((i & Y_BITS) - 2) & Y_BITS) | (i & ~Y_BITS);
+			}
+			break;
+		}
+		return index(x + Maze.DX(direction), y + Maze.DY(direction));
+	}
+
+	// Cells in whole tiles covering a w x h grid
+	private static long cells(int w,int h) {
+		return (long)((w + MASK) >>> TILE_SHIFT) * ((h + MASK) >>> TILE_SHIFT) << (2*TILE_SHIFT);
+	}
+}
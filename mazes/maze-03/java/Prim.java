@@ -1,5 +1,4 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class Prim extends Maze {
 	
@@ -8,9 +7,11 @@ public class Prim extends Maze {
 	public static int FRONTIER = 0x20;
 	
 	// Define instance variables
-	private boolean _animate = false;
-	private float _delay = 0.0f;
-	private List<Point> _frontier = null;
+	protected boolean _animate = false;
+	protected float _delay = 0.0f;
+	// Frontier cells, packed as y*_w + x, in the first _size slots
+	private int[] _frontier = null;
+	private int _size = 0;
 	
 	//
 	// Standard Constructors
@@ -32,65 +33,85 @@ public class Prim extends Maze {
 	// Animating Constructor(s)
 	//
 	public Prim(int w,int h,boolean animate,float delay) {
+		this(w,h,animate,delay,true);
+	}
+
+	public Prim(int w,int h,boolean animate,float delay,long seed) {
+		this(w,h,animate,delay,seed,true);
+	}
+	
+	//
+	// Subclass Constructor(s): unless carve is set, leave the carving to the
+	// subclass, which can then set up its own fields before it carves
+	//
+	protected Prim(int w,int h,boolean animate,float delay,boolean carve) {
 		super(w,h);
 		_animate = animate;
 		_delay = delay;
-		initialize();
+		if ( carve ) {
+			initialize();
+		}
 	}
-
-	public Prim(int w,int h,boolean animate,float delay,long seed) {
+	protected Prim(int w,int h,boolean animate,float delay,long seed,boolean carve) {
 		super(w,h,seed);
 		_animate = animate;
 		_delay = delay;
-		initialize();
+		if ( carve ) {
+			initialize();
+		}
 	}
 
 	private void initialize() {
-		// Structure to hold the frontier cells
-		_frontier = new ArrayList<Point>();
-		
 		// Only prepare the maze beforehand if we are doing "static" (i.e., animate = false) drawing
 		if ( !_animate ) {
 			carvePassages(); 
 		}
 	}
 	
+	/***************************************************************
+	 * Prim needs the IN and FRONTIER flags in addition to the four
+	 * direction bits, so ask for a grid with 8 bits per cell.
+	 ***************************************************************/
+	protected Grid createGrid(int w,int h) {
+		return Grid.obtain(w,h,8);
+	}
+	
 	/***************************************************************
 	 * Carve the passages in the maze using the Prim algorithm.
 	 ***************************************************************/
-	private void carvePassages() {
+	protected void carvePassages() {
+		// Structure to hold the frontier cells
+		_frontier = new int[Math.min(_w * _h, 1024)];
+		_size = 0;
+		generating();
 		
 		// Select random point in the grid to begin carving
 		mark(_random.nextInt(_w),_random.nextInt(_h));
 		
 		// Marking an empty matrix creates a frontier.
 		// Keep going until there is no frontier.
-		Point p = null, q = null;
-		List<Point> n = null;
-		int x,y,dx,dy,dir;
-		while ( _frontier.size() > 0 ) {
+		int i,p,x,y,dir;
+		while ( _size > 0 ) {
 			
-			// Randomly select a frontier point, and 
-			// randomly select one of the neighboring
-			// points to that frontier point.
-			p = _frontier.remove(_random.nextInt(_frontier.size()));
-			x = p.getX(); y = p.getY();
-			n = neighbors(x,y);
-			q = n.get(_random.nextInt(n.size()));
-			dx = q.getX(); dy = q.getY();
+			// Randomly select a frontier point (removing it by
+			// swapping the last frontier point into its slot),
+			// and randomly select one of the neighboring points
+			// to that frontier point which is already "in".
+			i = _random.nextInt(_size);
+			p = _frontier[i];
+			_frontier[i] = _frontier[--_size];
+			x = p % _w; y = p / _w;
+			dir = neighbor(x,y);
 			
 			// "Knock down" the wall between the selected
 			// frontier point and its neighbor. 
-			dir = direction(x, y, dx, dy);
-			_grid[y][x] |= dir;
-			_grid[dy][dx] |= Maze.OPPOSITE(dir);
+			carve(x,y,dir);
 			
 			// Recursively mark the newly selected point.
 			mark(x,y);
 			
-			// If we are animating, display the maze
-			if ( _animate ) {
-				display();
+			// If we are animating, give the animator time to catch up
+			if ( _animate && _delay > 0 ) {
 				try {
 					Thread.sleep((long)(_delay*1000));
 				} catch ( Exception ex ) {
@@ -98,14 +119,14 @@ public class Prim extends Maze {
 				}
 			}
 		}
-		
-		// If we are animating, display the maze (one last time)
-		if ( _animate ) {
-			display();
-			
-			// Output maze metadata 
-			System.out.println(metadata());
-		}
+		generated();
+	}
+	
+	/****************************************************************
+	 * Carve the maze (when animating, without drawing it).
+	 ***************************************************************/
+	public void generate() {
+		carvePassages();
 	}
 	
 	/****************************************************************
@@ -115,56 +136,73 @@ public class Prim extends Maze {
 	 ***************************************************************/
 	public void draw() {
 		// Clear the screen
-		System.out.print((char)27 + "[2J");
+		renderer().clear();
 		
 		if ( !_animate ) {
 			// Move to upper left and defer to superclass
-			System.out.print((char)27 + "[H");
+			renderer().home();
 			super.draw();
 		} else {
-			// If we are animating, clear the screen and start carving
+			// If we are animating, clear the screen and start carving,
+			// drawing as we go on the animator thread
+			startAnimation();
 			carvePassages(); 
+			finishAnimation();
+			
+			// Output maze metadata 
+			Renderer r = renderer();
+			r.println(metadata().text());
+			r.flush();
 		}
 	}
 	
-	/********************************************************* 
-	 * Invoked to render animated version of the ASCII maze.
-	 *********************************************************/
-	public void display() {
-		// Draw the "top raw" of the maze
-		System.out.print((char)27 + "[H");
-		System.out.print(" ");
-		for ( int i=0; i < (_w*2) - 1; ++i ) {
-			System.out.print("_");
-		}
-		System.out.println("");
-		
-		// Step through the grid cells of the maze
-		for ( int y=0; y < _grid.length; ++y ) {
-			System.out.print("|");
-			for ( int x=0; x < _grid[y].length; ++x ) {
+	/*********************************************************************************
+	 * Cells which are empty (or in the frontier) are drawn without their walls, so
+	 * that the unvisited part of the grid shows up as open space, and frontier cells
+	 * are colored red. Each cell is reduced to the Renderer key which gives its
+	 * bottom (' ' or '_') and side (' ', '_' or '|') characters.
+	 *
+	 * Since the key of a cell also depends on the cells to its south and southeast,
+	 * a change to a cell must redraw the cells to its north and northwest as well.
+	 *********************************************************************************/
+	protected Renderer createRenderer() {
+		return new Renderer(_grid,output()) {
+			public void touch(int x,int y) {
+				super.touch(x,y);
+				super.touch(x,y-1);
+			}
+			
+			protected int key(int x,int y) {
+				int cell = cell(x,y);
+				int key = 0;
 				
-				// Color the cell if it is in the frontier
-				int cell = _grid[y][x];
-				if ( cell == Prim.FRONTIER ) 	{ System.out.print((char)27 + "[41m"); }
-				if ( empty(cell) && y+1 < _h && empty(_grid[y+1][x]) ) {
-					System.out.print(" ");
-				} else {
-					System.out.print(((cell & Maze.S) != 0) ? " " : "_");
+				// Draw the "bottom" of the cell
+				if ( empty(cell) && y+1 < _h && empty(cell(x,y+1)) ) {
+					key |= Maze.S;
+				} else if ( (cell & Maze.S) != 0 ) {
+					key |= Maze.S;
 				}
-				if ( cell == Prim.FRONTIER ) 	{ System.out.print((char)27 + "[m"); }
 				
-				// Draw the "grid" of the maze
-				if ( empty(cell) && x+1 < _w && empty(_grid[y][x+1]) ) {
-					System.out.print( (y+1 < _h && ((empty(_grid[y+1][x]) || empty(_grid[y+1][x+1])))) ? " " : "_");
-				} else if ( (cell & Maze.E)!= 0 )  {
-					System.out.print( (((cell | _grid[y][x+1]) & Maze.S) != 0 ) ? " " : "_");
-				} else {
-					System.out.print("|");
+				// Draw the "side" of the cell
+				if ( empty(cell) && x+1 < _w && empty(cell(x+1,y)) ) {
+					if ( y+1 < _h && (empty(cell(x,y+1)) || empty(cell(x+1,y+1))) ) {
+						key |= Maze.E | Renderer.EAST_S;
+					} else {
+						key |= Maze.E;
+					}
+				} else if ( (cell & Maze.E) != 0 ) {
+					key |= Maze.E;
+					if ( ((cell | cell(x+1,y)) & Maze.S) != 0 ) {
+						key |= Renderer.EAST_S;
+					}
 				}
+				return key;
 			}
-			System.out.println("");
-		}
+			
+			protected int color(int x,int y) {
+				return ( cell(x,y) == Prim.FRONTIER ) ? Renderer.RED : 0;
+			}
+		};
 	}
 	
 	/************************************************************************************
@@ -174,9 +212,13 @@ public class Prim extends Maze {
 	 * @param y y-coord of the point to add to the frontier.
 	 ***********************************************************************************/
 	private void addToFrontier(int x, int y) {
-		if ( x >= 0 && y >= 0 && y < _h && x < _w && _grid[y][x] == 0 ) {
-			_grid[y][x] |= Prim.FRONTIER;
-			_frontier.add(new Point(x,y));
+		if ( x >= 0 && y >= 0 && y < _h && x < _w && cell(x,y) == 0 ) {
+			_grid.or(x,y,Prim.FRONTIER);
+			touch(x,y);
+			if ( _size == _frontier.length ) {
+				_frontier = Arrays.copyOf(_frontier, Math.min(_w * _h, _size * 2));
+			}
+			_frontier[_size++] = y*_w + x;
 		}
 	}
 	
@@ -187,7 +229,8 @@ public class Prim extends Maze {
 	 * @param y y-coord of the point to add to the maze. 
 	 ****************************************************************************************/
 	private void mark(int x, int y) {
-		_grid[y][x] |= Prim.IN;
+		_grid.or(x,y,Prim.IN);
+		touch(x,y);
 		
 		addToFrontier( x-1, y );
 		addToFrontier( x+1, y );
@@ -196,49 +239,27 @@ public class Prim extends Maze {
 	}
 	
 	/***************************************************************************************
-	 * Find the bounds which are inbounds and which have not yet been added to the matrix.
+	 * Randomly choose one of the neighbors of (x,y) which has already been added to the maze.
+	 * 
+	 * Candidate directions are collected into a bitmask, so nothing is allocated.
 	 * 
 	 * @param x x-coord of the argument point, whose neighbors we are seeking.
 	 * @param y y-coord of the argument point, whose neighbors we are seeking.
-	 * @return List<Point> of the points which are neighbors to the argument point.
+	 * @return Maze.N, Maze.S, Maze.E or Maze.W, the direction of the chosen neighbor.
 	 **************************************************************************************/
-	private List<Point> neighbors(int x,int y) {
-		ArrayList<Point> n = new ArrayList<Point>();
+	private int neighbor(int x,int y) {
+		int dirs = 0;
 		
-		if ( x > 0 && ((_grid[y][x-1] & Prim.IN) != 0) ) 				
-                { n.add(new Point(x-1,y)); }
-
-		if ( x+1 < _grid[y].length && ((_grid[y][x+1] & Prim.IN) != 0)) 
-                { n.add(new Point(x+1,y)); }
-
-		if ( y > 0 && ((_grid[y-1][x] & Prim.IN) != 0) ) 				
-                { n.add(new Point(x,y-1)); }
-
-		if ( y+1 < _grid.length && ((_grid[y+1][x] & Prim.IN) != 0)) 	
-                { n.add(new Point(x,y+1)); }
+		if ( x > 0 && ((cell(x-1,y) & Prim.IN) != 0) ) 	{ dirs |= Maze.W; }
+		if ( x+1 < _w && ((cell(x+1,y) & Prim.IN) != 0) ) 	{ dirs |= Maze.E; }
+		if ( y > 0 && ((cell(x,y-1) & Prim.IN) != 0) ) 	{ dirs |= Maze.N; }
+		if ( y+1 < _h && ((cell(x,y+1) & Prim.IN) != 0) ) 	{ dirs |= Maze.S; }
 		
-		return n;
-	}
-	
-	/************************************************************************************
-	 * Decide on which direction we should be moving in.
-	 * 
-	 * The answer will be one of the class variables N, S, E or W.
-	 * 
-	 * @param fx x-coord of current cell
-	 * @param fy y-coord of current cell
-	 * @param tx x-coord of new cell
-	 * @param ty y-coord of new cell 
-	 * @return Maze.N, Maze.S, Maze.E or Maze.W depending on which direction to go. 
-	 ***********************************************************************************/
-	private int direction(int fx, int fy, int tx, int ty) {
-		if ( fx < tx ) return Maze.E;
-		if ( fx > tx ) return Maze.W;
-		if ( fy < ty ) return Maze.S;
-		if ( fy > ty ) return Maze.N;
-		
-		// Default case, should not get here.. 
-		return -1;
+		// Drop the lowest set bits until we reach the k-th one
+		for ( int k = _random.nextInt(Integer.bitCount(dirs)); k > 0; --k ) {
+			dirs &= dirs - 1;
+		}
+		return Integer.lowestOneBit(dirs);
 	}
 	
 	/**********************************************************************************************
@@ -251,30 +272,5 @@ public class Prim extends Maze {
 	private boolean empty(int cell) {
 		return cell == 0 || cell == Prim.FRONTIER;
 	}
-
-    // 
-    // Override metadata to inform what type of maze we are carving.
-    //
-    protected String metadata() {
-	return super.metadata() + " [Prim]";
-    }
 }
 
-/********************************************************************************************
- * Container object to hold a representation of points, so that we can store and manipulate 
- * "point" objects in java.util.List structures.
- * 
- * @author psholtz
- *******************************************************************************************/
-class Point {
-	private int _x;
-	private int _y;
-	
-	public Point(int x,int y) {
-		_x = x;
-		_y = y;
-	}
-	
-	public int getX() { return _x; }
-	public int getY() { return _y; }
-}
\ No newline at end of file
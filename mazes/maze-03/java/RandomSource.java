@@ -0,0 +1,265 @@
+/***********************************************************************
+ * Class RandomSource is the source of random numbers for the maze
+ * generators (see Maze._random).
+ *
+ * Three kinds of source are available, by name:
+ *
+ * "lcg"        -- the same 48-bit linear congruential generator as
+ *                 java.util.Random, giving exactly the same numbers for
+ *                 the same seed (so seeds give the same mazes as they
+ *                 always have), but without Random's AtomicLong CAS on
+ *                 every call. This is the default.
+ * "splittable" -- java.util.SplittableRandom.
+ * "xoshiro"    -- xoshiro256**, seeded through splitmix64, which is
+ *                 fast, has 256 bits of state, and can jump ahead.
+ *
+ * None of these are thread-safe. Parallel generators should instead
+ * split() off one source per band, region, etc: every source split off
+ * depends only on the seed and on the order of the calls to split().
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.SplittableRandom;
+
+public abstract class RandomSource {
+	// Define class variables
+	public static final String DEFAULT = "lcg";
+
+	// Kind of source made by create(), unless told otherwise
+	private static volatile String _default = DEFAULT;
+
+	/**
+	 * Return 32 random bits.
+	 */
+	public abstract int nextInt();
+
+	/**
+	 * Return 64 random bits.
+	 */
+	public abstract long nextLong();
+
+	/**
+	 * Return a new source, independent of this one (which it advances).
+	 */
+	public abstract RandomSource split();
+
+	/**
+	 * Return a uniformly distributed int between 0 (inclusive) and bound (exclusive).
+	 *
+	 * Uses Lemire's multiply-and-shift, which only needs a division to reject
+	 * the (rare) biased values.
+	 */
+	public int nextInt(int bound) {
+		if ( bound <= 0 ) {
+			throw new IllegalArgumentException("bound must be positive: " + bound);
+		}
+		long m = (nextInt() & 0xFFFFFFFFL) * bound;
+		if ( (m & 0xFFFFFFFFL) < bound ) {
+			long threshold = (0x100000000L - bound) % bound;
+			while ( (m & 0xFFFFFFFFL) < threshold ) {
+				m = (nextInt() & 0xFFFFFFFFL) * bound;
+			}
+		}
+		return (int)(m >>> 32);
+	}
+
+	public boolean nextBoolean() {
+		return nextInt() < 0;
+	}
+
+	/**
+	 * Look up a source by name ("lcg", "splittable" or "xoshiro"), seeded with seed.
+	 */
+	public static RandomSource forName(String name,long seed) {
+		if ( name.equals("lcg") ) 		{ return lcg(seed); }
+		if ( name.equals("splittable") ) 	{ return splittable(seed); }
+		if ( name.equals("xoshiro") ) 		{ return xoshiro(seed); }
+		throw new IllegalArgumentException("unknown random source: " + name);
+	}
+
+	/**
+	 * Make a source of the default kind, seeded with seed (or randomly).
+	 */
+	public static RandomSource create(long seed) {
+		return forName(_default, seed);
+	}
+	public static RandomSource create() {
+		return create(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Make a source of the default kind for a parallel generator to split().
+	 * The "lcg" has too little state to split well, so it is replaced by
+	 * "splittable".
+	 */
+	public static RandomSource forSplitting(long seed) {
+		return forName(_default.equals("lcg") ? "splittable" : _default, seed);
+	}
+
+	/**
+	 * Change the kind of source made by create().
+	 */
+	public static void setDefault(String name) {
+		forName(name, 0L);
+		_default = name;
+	}
+
+	public static String getDefault() {
+		return _default;
+	}
+
+	public static RandomSource lcg(long seed) {
+		return new Lcg(seed);
+	}
+
+	public static RandomSource splittable(long seed) {
+		return new Splittable(new SplittableRandom(seed));
+	}
+
+	public static RandomSource xoshiro(long seed) {
+		return new Xoshiro(seed);
+	}
+
+	/**
+	 * The generator of java.util.Random, without the synchronization.
+	 */
+	public static class Lcg extends RandomSource {
+		private static final long MULTIPLIER = 0x5DEECE66DL;
+		private static final long ADDEND = 0xBL;
+		private static final long MASK = (1L << 48) - 1;
+
+		private long _seed = 0;
+
+		public Lcg(long seed) {
+			_seed = (seed ^ MULTIPLIER) & MASK;
+		}
+
+		private int next(int bits) {
+			_seed = (_seed * MULTIPLIER + ADDEND) & MASK;
+			return (int)(_seed >>> (48 - bits));
+		}
+
+		public int nextInt() {
+			return next(32);
+		}
+
+		public long nextLong() {
+			return ((long)next(32) << 32) + next(32);
+		}
+
+		public boolean nextBoolean() {
+			return next(1) != 0;
+		}
+
+		// Same algorithm as Random.nextInt(bound), so as to give the same numbers
+		public int nextInt(int bound) {
+			if ( bound <= 0 ) {
+				throw new IllegalArgumentException("bound must be positive: " + bound);
+			}
+			int r = next(31);
+			int m = bound - 1;
+			if ( (bound & m) == 0 ) {
+				return (int)((bound * (long)r) >> 31);
+			}
+			for ( int u = r; u - (r = u % bound) + m < 0; u = next(31) ) {
+			}
+			return r;
+		}
+
+		public RandomSource split() {
+			return new Lcg(nextLong());
+		}
+	}
+
+	/**
+	 * A java.util.SplittableRandom.
+	 */
+	public static class Splittable extends RandomSource {
+		private SplittableRandom _random = null;
+
+		public Splittable(SplittableRandom random) {
+			_random = random;
+		}
+
+		public int nextInt() 			{ return _random.nextInt(); }
+		public int nextInt(int bound) 		{ return _random.nextInt(bound); }
+		public long nextLong() 			{ return _random.nextLong(); }
+		public boolean nextBoolean() 		{ return _random.nextBoolean(); }
+
+		public RandomSource split() {
+			return new Splittable(_random.split());
+		}
+	}
+
+	/**
+	 * xoshiro256** (Blackman and Vigna).
+	 */
+	public static class Xoshiro extends RandomSource {
+		// Polynomial for jump(), equivalent to 2^128 calls to nextLong()
+		private static final long[] JUMP = { 0x180ec6d33cfd0abaL, 0xd5a61266f0c9392cL, 0xa9582618e03fc9aaL, 0x39abdc4529b1661cL };
+
+		private long _s0, _s1, _s2, _s3;
+
+		/**
+		 * Seed the state with splitmix64, as recommended, so that it is never all zero.
+		 */
+		public Xoshiro(long seed) {
+			_s0 = splitmix(seed += 0x9E3779B97F4A7C15L);
+			_s1 = splitmix(seed += 0x9E3779B97F4A7C15L);
+			_s2 = splitmix(seed += 0x9E3779B97F4A7C15L);
+			_s3 = splitmix(seed += 0x9E3779B97F4A7C15L);
+		}
+		private Xoshiro(long s0,long s1,long s2,long s3) {
+			_s0 = s0; _s1 = s1; _s2 = s2; _s3 = s3;
+		}
+
+		private static long splitmix(long z) {
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+
+		public long nextLong() {
+			long result = Long.rotateLeft(_s1 * 5, 7) * 9;
+			long t = _s1 << 17;
+			_s2 ^= _s0;
+			_s3 ^= _s1;
+			_s1 ^= _s2;
+			_s0 ^= _s3;
+			_s2 ^= t;
+			_s3 = Long.rotateLeft(_s3, 45);
+			return result;
+		}
+
+		public int nextInt() {
+			return (int)(nextLong() >>> 32);
+		}
+
+		/**
+		 * Advance the state as if by 2^128 calls to nextLong().
+		 */
+		public void jump() {
+			long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+			for ( int i=0; i < JUMP.length; ++i ) {
+				for ( int b=0; b < 64; ++b ) {
+					if ( (JUMP[i] & (1L << b)) != 0 ) {
+						s0 ^= _s0; s1 ^= _s1; s2 ^= _s2; s3 ^= _s3;
+					}
+					nextLong();
+				}
+			}
+			_s0 = s0; _s1 = s1; _s2 = s2; _s3 = s3;
+		}
+
+		/**
+		 * Hand the current state to the new source, and jump this one 2^128 steps
+		 * ahead, so that no two sources split off this way ever overlap.
+		 */
+		public RandomSource split() {
+			Xoshiro split = new Xoshiro(_s0, _s1, _s2, _s3);
+			jump();
+			return split;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/***********************************************************************************
+ * Class WeightedPrim generates a maze using the "true" (weighted) version of Prim's
+ * algorithm, rather than the "random frontier" simplification used by Prim.
+ *
+ * Every wall in the grid is given a weight (see Weights), and the maze is the
+ * minimum spanning tree of the grid under those weights:
+ *
+ * 1. Randomly select a grid point in the maze, and add it to the maze.
+ * 2. Add its neighbors to the frontier, keyed by the weight of the wall between.
+ * 3. Take the frontier cell with the lowest key, and add it to the maze.
+ * 4. "Knock down" the cheapest wall between that cell and the maze.
+ * 5. Go back to Step 2, and repeat until there are no more frontier cells.
+ *
+ * The frontier is an IndexedHeap over cell indices, so a frontier cell's key is
+ * lowered in place when a cheaper wall to it is found, and nothing is boxed.
+ * Uniformly random weights give much the same texture as Prim; skewed weights
+ * (e.g., "horizontal") give mazes with a visible grain.
+ *
+ * @author psholtz
+ ***********************************************************************************/
+public class WeightedPrim extends Prim {
+
+	// Define class variables
+	public static final String DEFAULT_TEXTURE = "random";
+
+	// Define instance variables
+	private Weights _weights = null;
+	private IndexedHeap _heap = null;
+
+	//
+	// Standard Constructors
+	//
+	public WeightedPrim(int w,int h) {
+		this(w,h,false,0.0f,DEFAULT_TEXTURE);
+	}
+	public WeightedPrim(int w,int h,long seed) {
+		this(w,h,seed,DEFAULT_TEXTURE);
+	}
+	public WeightedPrim(int w,int h,long seed,String texture) {
+		super(w,h,false,0.0f,seed,false);
+		initialize(texture);
+	}
+
+	//
+	// Animating Constructor(s)
+	//
+	public WeightedPrim(int w,int h,boolean animate,float delay,String texture) {
+		super(w,h,animate,delay,false);
+		initialize(texture);
+	}
+	public WeightedPrim(int w,int h,boolean animate,float delay,long seed,String texture) {
+		super(w,h,animate,delay,seed,false);
+		initialize(texture);
+	}
+
+	private void initialize(String texture) {
+		_metadata.tag("weighted:" + texture);
+		_weights = Weights.forName(texture, _random.nextLong());
+		_heap = new IndexedHeap(_w * _h);
+
+		// Only prepare the maze beforehand if we are doing "static" (i.e., animate = false) drawing
+		if ( !_animate ) {
+			carvePassages();
+		}
+	}
+
+	/***************************************************************
+	 * Carve the passages in the maze using weighted Prim.
+	 ***************************************************************/
+	protected void carvePassages() {
+		generating();
+
+		// Select random point in the grid to begin carving
+		mark(_random.nextInt(_w),_random.nextInt(_h));
+
+		int p,x,y;
+		while ( !_heap.isEmpty() ) {
+
+			// Take the cheapest frontier point, and connect it
+			// to the maze through its cheapest wall.
+			p = _heap.poll();
+			x = p % _w; y = p / _w;
+			carve(x,y,cheapest(x,y));
+			mark(x,y);
+
+			// If we are animating, give the animator time to catch up
+			if ( _animate && _delay > 0 ) {
+				try {
+					Thread.sleep((long)(_delay*1000));
+				} catch ( Exception ex ) {
+					ex.printStackTrace();
+				}
+			}
+		}
+		generated();
+	}
+
+	/************************************************************************************
+	 * Add the grid point (x,y) to the maze, and offer each of its neighbors which is
+	 * not yet in the maze to the frontier, keyed by the weight of the wall between.
+	 ************************************************************************************/
+	private void mark(int x,int y) {
+		_grid.or(x,y,Prim.IN);
+		touch(x,y);
+
+		if ( x > 0 ) 		{ offer(x-1,y,x,y,Maze.W); }
+		if ( x+1 < _w ) 	{ offer(x+1,y,x,y,Maze.E); }
+		if ( y > 0 ) 		{ offer(x,y-1,x,y,Maze.N); }
+		if ( y+1 < _h ) 	{ offer(x,y+1,x,y,Maze.S); }
+	}
+
+	// Offer (nx,ny), reached from (x,y) going in direction dir, to the frontier
+	private void offer(int nx,int ny,int x,int y,int dir) {
+		if ( (cell(nx,ny) & Prim.IN) == 0 ) {
+			_grid.or(nx,ny,Prim.FRONTIER);
+			touch(nx,ny);
+			_heap.offer(ny*_w + nx, _weights.weight(x,y,dir));
+		}
+	}
+
+	/************************************************************************************
+	 * Return the direction of the cheapest wall between (x,y) and the maze.
+	 ************************************************************************************/
+	private int cheapest(int x,int y) {
+		int best = -1, weight = Integer.MAX_VALUE, w;
+		if ( x > 0 && (cell(x-1,y) & Prim.IN) != 0 && (w = _weights.weight(x,y,Maze.W)) < weight ) 	{ best = Maze.W; weight = w; }
+		if ( x+1 < _w && (cell(x+1,y) & Prim.IN) != 0 && (w = _weights.weight(x,y,Maze.E)) < weight ) 	{ best = Maze.E; weight = w; }
+		if ( y > 0 && (cell(x,y-1) & Prim.IN) != 0 && (w = _weights.weight(x,y,Maze.N)) < weight ) 	{ best = Maze.N; weight = w; }
+		if ( y+1 < _h && (cell(x,y+1) & Prim.IN) != 0 && (w = _weights.weight(x,y,Maze.S)) < weight ) 	{ best = Maze.S; weight = w; }
+		return best;
+	}
+
+	/************************************************************************************
+	 * Weighted Prim is still Prim: the metadata names the texture in a tag of its own.
+	 ************************************************************************************/
+	protected String algorithm() {
+		return "Prim";
+	}
+}
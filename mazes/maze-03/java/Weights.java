@@ -0,0 +1,92 @@
+/***********************************************************************
+ * Class Weights assigns a weight to every edge (i.e., every wall) in
+ * the grid, for use by the weighted variant of Prim's algorithm.
+ *
+ * Weights are computed from a hash of the edge and a key, rather than
+ * stored, so they cost no memory and are the same every time the same
+ * edge is asked for. An edge may be named from either side: the weight
+ * of (x,y) going E is the weight of (x+1,y) going W, and so on.
+ *
+ * The "texture" of the maze follows from how weights are distributed:
+ * uniformly random weights give a classic Prim maze, while making one
+ * orientation of edge systematically cheaper than the other stretches
+ * the passages out in that orientation.
+ *
+ * @author psholtz
+ **********************************************************************/
+public abstract class Weights {
+	// Define class variables
+	public static final int MAX_WEIGHT = 0xFFFF;
+
+	// Define instance variables
+	protected long _key = 0;
+
+	public Weights(long key) {
+		_key = key;
+	}
+
+	/**
+	 * Return the weight (between 0 and MAX_WEIGHT) of the edge
+	 * between (x,y) and its neighbor in the given direction.
+	 */
+	public abstract int weight(int x,int y,int direction);
+
+	/**
+	 * Look up a texture by name: "random", "horizontal" or "vertical".
+	 */
+	public static Weights forName(String name,long key) {
+		if ( name.equals("random") ) 		{ return random(key); }
+		if ( name.equals("horizontal") ) 	{ return horizontal(key); }
+		if ( name.equals("vertical") ) 		{ return vertical(key); }
+		throw new IllegalArgumentException("unknown texture: " + name);
+	}
+
+	/**
+	 * Uniformly random weights.
+	 */
+	public static Weights random(long key) {
+		return new Weights(key) {
+			public int weight(int x,int y,int direction) {
+				return hash(x,y,direction);
+			}
+		};
+	}
+
+	/**
+	 * East-west edges are cheaper, giving long horizontal corridors.
+	 */
+	public static Weights horizontal(long key) {
+		return new Weights(key) {
+			public int weight(int x,int y,int direction) {
+				int w = hash(x,y,direction) >>> 1;
+				return ( direction == Maze.E || direction == Maze.W ) ? w : w + (MAX_WEIGHT >>> 2);
+			}
+		};
+	}
+
+	/**
+	 * North-south edges are cheaper, giving long vertical corridors.
+	 */
+	public static Weights vertical(long key) {
+		return new Weights(key) {
+			public int weight(int x,int y,int direction) {
+				int w = hash(x,y,direction) >>> 1;
+				return ( direction == Maze.N || direction == Maze.S ) ? w : w + (MAX_WEIGHT >>> 2);
+			}
+		};
+	}
+
+	/**
+	 * Hash the edge to a value between 0 and MAX_WEIGHT. The edge is first
+	 * named canonically, by the cell on its south or east side and the
+	 * direction (N or W) pointing across it, so both sides agree.
+	 */
+	protected int hash(int x,int y,int direction) {
+		if ( direction == Maze.S ) 	{ y += 1; direction = Maze.N; }
+		if ( direction == Maze.E ) 	{ x += 1; direction = Maze.W; }
+		long z = _key ^ (((long)y << 32) | ((long)x << 1) | (direction == Maze.W ? 1 : 0)) * 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return (int)(z ^ (z >>> 31)) & MAX_WEIGHT;
+	}
+}
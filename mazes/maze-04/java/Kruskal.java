@@ -1,8 +1,3 @@
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
-
-
 /****************************************************************************
  * Generate a maze using randomized variant of Kruskal's algorithm.
  * 
@@ -21,8 +16,15 @@ public class Kruskal extends Maze {
 	private boolean _animate = false;
 	private float _delay = 0.0f;
 	
-	private List<List<Tree>> _sets;
-	private Stack<Edge> _edges;
+	private DisjointSet _sets;
+	private int[] _edges;
+	private int _count;
+	
+	// When true, visit the edges in the order given by an implicit
+	// Permutation, rather than materializing and shuffling _edges.
+	private boolean _implicit = false;
+	private Permutation _permutation;
+	private long _next;
 	
 	//
 	// Standard Constructors
@@ -57,30 +59,75 @@ public class Kruskal extends Maze {
 		initialize();
 	}
 	
+	// 
+	// Implicit-Edge Constructor(s)
+	//
+	public Kruskal(int w,int h,long seed,boolean implicit) {
+		super(w,h,seed);
+		_implicit = implicit;
+		initialize();
+	}
+	public Kruskal(int w,int h,boolean animate,float delay,boolean implicit) {
+		super(w,h);
+		_animate = animate;
+		_delay = delay;
+		_implicit = implicit;
+		initialize();
+	}
+	public Kruskal(int w,int h,boolean animate,float delay,long seed,boolean implicit) {
+		super(w,h,seed);
+		_animate = animate;
+		_delay = delay;
+		_implicit = implicit;
+		initialize();
+	}
+	
+	//
+	// Carve into the given grid (e.g., a PagedGrid)
+	//
+	public Kruskal(Grid grid,long seed,boolean implicit) {
+		super(grid,seed);
+		_implicit = implicit;
+		initialize();
+	}
+	
 	private void initialize() {
 		
-		// Initialize the sets to the same dimension as the maze.
-		// We use Tree objects to represent the sets to be joined. 
-		_sets = new ArrayList<List<Tree>>();
-		for ( int y=0; y < _h; ++y ) {
-			List<Tree> tmp = new ArrayList<Tree>();
-			for ( int x=0; x < _w; ++x ) {
-				tmp.add(new Tree());
-			}
-			_sets.add(tmp);
+		// Initialize one set per cell of the maze.
+		// Cell (x,y) is represented by the index y*_w + x.
+		long cells = (long)_w * _h;
+		if ( cells > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalArgumentException("maze too large for Kruskal (one set per cell): " + _w + "x" + _h);
+		}
+		if ( !_implicit && 2 * cells > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalArgumentException("too many edges to shuffle: " + _w + "x" + _h + " (use the implicit mode)");
 		}
+		_sets = new DisjointSet((int)cells);
 		
-		// Build the collection of edges and randomize. 
-		// Edges are "north" and "west" sides of cell, 
-		// if index is greater than 0.
-		_edges = new Stack<Edge>();
-		for ( int y=0; y < _h; ++y ) {
-			for (int x=0; x < _w; ++x ) {
-				if ( y > 0 ) 	{ _edges.add(new Edge(x,y,Maze.N)); }
-				if ( x > 0 ) 	{ _edges.add(new Edge(x,y,Maze.W)); }
+		if ( _implicit ) {
+			_metadata.tag("implicit");
+
+			// Every cell has a "north" and a "west" slot, so the edges are
+			// drawn from 2*_w*_h packed values. Slots on the top row and
+			// left column are not real edges, and are skipped by nextEdge().
+			_permutation = new Permutation(2L * _w * _h, _random);
+			_next = 0;
+		} else {
+			// Build the collection of edges and randomize. 
+			// Edges are "north" and "west" sides of cell, 
+			// if index is greater than 0. Each edge is packed
+			// into an int as (cell index << 1) | (1 if west).
+			_edges = new int[(_w-1)*_h + _w*(_h-1)];
+			_count = 0;
+			for ( int y=0; y < _h; ++y ) {
+				for (int x=0; x < _w; ++x ) {
+					int cell = y*_w + x;
+					if ( y > 0 ) 	{ _edges[_count++] = cell << 1; }
+					if ( x > 0 ) 	{ _edges[_count++] = (cell << 1) | 1; }
+				}
 			}
+			shuffle(_edges);
 		}
-		shuffle(_edges);
 		
 		if ( !_animate ) {
 			carvePassages();
@@ -94,51 +141,41 @@ public class Kruskal extends Maze {
 	 ******************************************************************/
 	public void draw() {
 		// Clear the screen
-		System.out.print((char)27 + "[2J");
+		renderer().clear();
 		
 		if ( !_animate ) {
 			// Move to the upper left and defer to superclass.
-			System.out.print((char)27 + "[H");
+			renderer().home();
 			super.draw();
 		} else {
-			// Carve the passages and animate as we go 
+			// Carve the passages and animate as we go,
+			// drawing on the animator thread
+			startAnimation();
 			carvePassages();
+			finishAnimation();
+			
+			// Output maze metadata
+			outputMetadata(); 
+			renderer().flush();
 		}
 	}
 	
 	/*****************************************************************
-	 * Very similar, in terms of implementation, to the draw() 
-	 * method in the superclass, the main difference being that
-	 * here we will color a cell gray if it remains unconnected.
+	 * Carve the maze (when animating, without drawing it).
 	 *****************************************************************/
-	public void display() {
-		// Draw the "top row" of the maze
-		System.out.print((char)27 + "[H");
-		System.out.print(" ");
-		for ( int i=0; i < (_w*2) - 1; ++i ) {
-			System.out.print("_");
-		}
-		System.out.println("");
-		
-		// Step through the grid/maze, cell-by-cell
-		for ( int y=0; y < _grid.length; ++y ) {
-			System.out.print("|");
-			for ( int x=0; x < _grid[0].length; ++x ) {
-				// Start coloring, if unconnected
-				if ( _grid[y][x] == 0 ) 	{ System.out.print((char)27 + "[47m"); }
-				
-				System.out.print( ((_grid[y][x] & Maze.S) != 0) ? " " : "_" );
-				if ( (_grid[y][x] & Maze.E) != 0 ) {
-					System.out.print( (((_grid[y][x] | _grid[y][x+1]) & Maze.S) != 0) ? " " : "_" );
-				} else {
-					System.out.print("|");
-				}
-				
-				// Stop coloring, if unconnected
-				if ( _grid[y][x] == 0 ) 	{ System.out.print((char)27 + "[m"); }
+	public void generate() {
+		carvePassages();
+	}
+	
+	/*****************************************************************
+	 * When animating, color a cell gray while it remains unconnected.
+	 *****************************************************************/
+	protected Renderer createRenderer() {
+		return new Renderer(_grid,output()) {
+			protected int color(int x,int y) {
+				return ( _animate && cell(x,y) == 0 ) ? Renderer.GRAY : 0;
 			}
-			System.out.println("");
-		}
+		};
 	}
 	
 	/*************************************************
@@ -151,22 +188,22 @@ public class Kruskal extends Maze {
 	 * (5) Repeat at Step 1.
 	 *************************************************/
 	private void carvePassages() {
-		while ( _edges.size() > 0 ) {
-			// Select the next edge, and decide which direction we are going in.
-			Edge tmp = _edges.pop();
-			int x = tmp.getX();
-			int y = tmp.getY();
-			int direction = tmp.getDirection();
-			int dx = x + Maze.DX(direction), dy = y + Maze.DY(direction);
+		generating();
+
+		// Once every cell is in one set, no remaining edge can be used.
+		long edge;
+		while ( _sets.count() > 1 && (edge = nextEdge()) >= 0 ) {
+			// Decide which direction the selected edge is going in.
+			int set1 = (int)(edge >>> 1);
+			int direction = (edge & 1) != 0 ? Maze.W : Maze.N;
+			int x = set1 % _w, y = set1 / _w;
 			
-			// Pluck out the corresponding sets
-			Tree set1 = (_sets.get(y)).get(x);
-			Tree set2 = (_sets.get(dy)).get(dx);
+			// Pluck out the corresponding set on the other side of the wall
+			int set2 = (direction == Maze.W) ? set1 - 1 : set1 - _w;
 			
-			if ( !set1.connected(set2) ) {
-				// If we are animating, display the maze and pause
-				if ( _animate ) {
-					display();
+			if ( !_sets.connected(set1,set2) ) {
+				// If we are animating, pause
+				if ( _animate && _delay > 0 ) {
 					try {
 						 Thread.sleep((long)(_delay * 1000));
 					} catch ( Exception ex ) {
@@ -175,99 +212,44 @@ public class Kruskal extends Maze {
 				}
 				
 				// Connect the two sets and "knock down" the wall between them.
-				set1.connect(set2);
-				_grid[y][x] |= direction;
-				_grid[dy][dx] |= Maze.OPPOSITE(direction);
+				_sets.union(set1,set2);
+				carve(x,y,direction);
 			}
 		}
-		
-		if ( _animate ) {
-			// Display the final iteration
-			display();
-			
-			// Output maze metadata
-			outputMetadata(); 
-		}
+		generated();
 	}
 	
 	/**
-	 * Randomly shuffle a List. 
-	 * 
-	 * @param args List (of Edges) to be randomly shuffled.
+	 * Return the next edge to consider (packed as (cell index << 1) | (1 if west)),
+	 * or -1 if every edge has been considered. Implicit edges run up to 2*_w*_h,
+	 * which may not fit in an int, so edges are returned as longs.
 	 */
-	private void shuffle(List<Edge> args) {
-		for ( int i=0; i < args.size(); ++i ) {
-			int pos = _random.nextInt(args.size());
-			Edge tmp1 = args.get(i);
-			Edge tmp2 = args.get(pos);
-			args.set(i,tmp2);
-			args.set(pos,tmp1);
+	private long nextEdge() {
+		if ( !_implicit ) {
+			return _count > 0 ? _edges[--_count] : -1;
 		}
-	}
-}
-
-/***********************************************************************
- * We will use a tree structure to model the "set" (or "vertex") 
- * that is used in Kruskal to build the graph.
- * 
- * @author psholtz
- ***********************************************************************/
-class Tree {
-	
-	private Tree _parent = null;
-	
-	//
-	// Build a new tree object
-	//
-	public Tree() {
-		
-	}
-	
-	// 
-	// If we are joined, return the root. Otherwise, return this object instance.
-	//
-	public Tree root() {
-		return _parent != null ? _parent.root() : this;
-	}
-	
-	// 
-	// Are we connected to this tree?
-	//
-	public boolean connected(Tree tree) {
-		return this.root() == tree.root();
-	}
-	
-	//
-	// Connect to the tree
-	//
-	public void connect(Tree tree) {
-		tree.root().setParent(this);
+		while ( _next < _permutation.size() ) {
+			long edge = _permutation.get(_next++);
+			int cell = (int)(edge >>> 1);
+			if ( (edge & 1) != 0 ? (cell % _w) > 0 : cell >= _w ) {
+				return edge;
+			}
+		}
+		return -1;
 	}
 	
-	//
-	// Set the parent of the object instance
-	public void setParent(Tree parent) {
-		this._parent = parent;
+	/**
+	 * Randomly shuffle the array of (packed) edges, using the Fisher-Yates
+	 * algorithm so that every ordering is equally likely.
+	 * 
+	 * @param args array (of packed edges) to be randomly shuffled.
+	 */
+	private void shuffle(int[] args) {
+		for ( int i=args.length - 1; i > 0; --i ) {
+			int pos = _random.nextInt(i + 1);
+			int tmp = args[i];
+			args[i] = args[pos];
+			args[pos] = tmp;
+		}
 	}
 }
-
-/*********************************************************************************************
- * Encapsulates the x,y coord of where the edge starts, and the direction in which it points.
- * 
- * @author psholtz
- *********************************************************************************************/
-class Edge {
-	private int _x;
-	private int _y;
-	private int _direction;
-	
-	public Edge(int x, int y, int direction) {
-		_x = x; 
-		_y = y;
-		_direction = direction;
-	}
-	
-	public int getX() { return _x; }
-	public int getY() { return _y; }
-	public int getDirection() { return _direction; }
-}
\ No newline at end of file
@@ -0,0 +1,195 @@
+/***********************************************************************
+ * Class Metadata describes a maze: the program which made it, the
+ * algorithm, its dimensions and seed, any further tags (e.g., the
+ * texture of a weighted maze), how long it took to generate, and how
+ * many cells it has and how many passages were carved between them.
+ *
+ * A Maze builds its Metadata once, when it is constructed, and keeps
+ * the counters up to date as it is carved. It can be written out as the
+ * one line of text printed under each maze,
+ *
+ *     main:Driver 10 10 42 [BackTracker]
+ *
+ * or as a JSON object, e.g. for a batch of mazes.
+ *
+ * The name of the main class is looked up once per process (from the
+ * "sun.java.command" property, rather than by walking the stack).
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Metadata {
+	// Define class variables
+	public static final String MAIN = mainClass();
+
+	// Define instance variables
+	private String _algorithm = null;
+	private int _w = 0;
+	private long _h = 0;
+	private Long _seed = null;
+	private List<String> _tags = new ArrayList<String>(2);
+	private long _nanos = -1L;
+	private long _edges = 0L;
+	private String _text = null;
+
+	/**
+	 * Describe a w x h maze made by the given algorithm, with the given seed (or null, if random).
+	 */
+	public Metadata(String algorithm,int w,long h,Long seed) {
+		_algorithm = algorithm;
+		_w = w;
+		_h = h;
+		_seed = seed;
+	}
+
+	public String algorithm() 	{ return _algorithm; }
+	public int width() 		{ return _w; }
+	public long height() 		{ return _h; }
+	public Long seed() 		{ return _seed; }
+	public List<String> tags() 	{ return _tags; }
+
+	/**
+	 * Add a tag, printed in [brackets] after the algorithm.
+	 */
+	public void tag(String tag) {
+		_tags.add(tag);
+		_text = null;
+	}
+
+	/**
+	 * Return the number of cells in the maze (0 if it has no fixed height).
+	 */
+	public long cells() {
+		return (long)_w * _h;
+	}
+
+	/**
+	 * Return the number of passages carved so far.
+	 */
+	public long edges() {
+		return _edges;
+	}
+
+	/**
+	 * Count one more passage carved.
+	 */
+	public void carved() {
+		++_edges;
+	}
+
+	public void setEdges(long edges) {
+		_edges = edges;
+	}
+
+	/**
+	 * Return how long the maze took to generate, in nanoseconds (or -1, if not yet known).
+	 */
+	public long nanos() {
+		return _nanos;
+	}
+
+	public void generated(long nanos) {
+		_nanos = nanos;
+	}
+
+	/**
+	 * Return the line of text printed under the maze. This depends only on
+	 * what the maze was asked to be, so is only built once.
+	 */
+	public String text() {
+		if ( _text == null ) {
+			StringBuilder sb = new StringBuilder(64);
+			sb.append("main:").append(MAIN);
+			sb.append(' ').append(_w);
+			sb.append(' ');
+			if ( _h > 0 ) {
+				sb.append(_h);
+			} else {
+				sb.append("endless");
+			}
+			sb.append(' ');
+			if ( _seed != null ) {
+				sb.append(_seed);
+			} else {
+				sb.append("random");
+			}
+			sb.append(" [").append(_algorithm).append(']');
+			for ( String tag : _tags ) {
+				sb.append(" [").append(tag).append(']');
+			}
+			_text = sb.toString();
+		}
+		return _text;
+	}
+
+	/**
+	 * Return everything known about the maze, as a (one line) JSON object.
+	 */
+	public String json() {
+		StringBuilder sb = new StringBuilder(160);
+		sb.append("{\"main\":");
+		quote(sb, MAIN);
+		sb.append(",\"algorithm\":");
+		quote(sb, _algorithm);
+		sb.append(",\"width\":").append(_w);
+		sb.append(",\"height\":");
+		if ( _h > 0 ) {
+			sb.append(_h);
+		} else {
+			sb.append("null");
+		}
+		sb.append(",\"seed\":").append(_seed);
+		sb.append(",\"tags\":[");
+		for ( int i=0; i < _tags.size(); ++i ) {
+			if ( i > 0 ) {
+				sb.append(',');
+			}
+			quote(sb, _tags.get(i));
+		}
+		sb.append("],\"cells\":").append(cells());
+		sb.append(",\"edges\":").append(_edges);
+		sb.append(",\"nanos\":");
+		if ( _nanos >= 0 ) {
+			sb.append(_nanos);
+		} else {
+			sb.append("null");
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+
+	public String toString() {
+		return text();
+	}
+
+	private static void quote(StringBuilder sb,String s) {
+		sb.append('"');
+		for ( int i=0; i < s.length(); ++i ) {
+			char c = s.charAt(i);
+			if ( c == '"' || c == '\\' ) {
+				sb.append('\\').append(c);
+			} else if ( c < 0x20 ) {
+				sb.append(String.format("\\u%04x", (int)c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	// The class named first on the command line (e.g., "Driver"), without any package
+	private static String mainClass() {
+		String command = System.getProperty("sun.java.command");
+		if ( command == null || command.trim().isEmpty() ) {
+			return "unknown";
+		}
+		String main = command.trim().split("\\s+")[0];
+		if ( main.endsWith(".jar") ) {
+			return main.substring(main.lastIndexOf('/') + 1);
+		}
+		return main;
+	}
+}
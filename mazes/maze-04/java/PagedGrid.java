@@ -0,0 +1,322 @@
+/***********************************************************************
+ * Class PagedGrid is a Grid for mazes larger than the heap: its cells
+ * are kept on disk, in square tiles, and only a fixed number of tiles
+ * ("frames") are held in memory at any one time.
+ *
+ * A tile is side x side cells (side a power of two), packed 4 bits to
+ * a cell like any Grid. Square tiles suit the generators, which mostly
+ * carve next to where they last carved, in any direction. Reading or
+ * writing a cell whose tile is not in memory is a "fault": a frame is
+ * chosen by the clock algorithm (the hand sweeps the frames, sparing
+ * any used since it last came round, as an approximation of LRU), its
+ * tile is written back to disk if it changed, and the wanted tile is
+ * read in (or, if it was never written out, simply zeroed).
+ *
+ * The tiles are stored in a scratch file, which is deleted on close().
+ * The faults, and the tiles read and written, are counted, so that the
+ * tile size and the number of frames can be tuned to a workload.
+ *
+ * A PagedGrid is not safe to use from more than one thread.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class PagedGrid extends Grid implements Closeable {
+	// Define class variables
+	public static final int DEFAULT_TILE_SIZE = 256;
+	public static final int DEFAULT_FRAMES = 1024;
+
+	// Define instance variables
+	private int _tileShift = 0;	// log2 of the side of a tile
+	private int _tilesAcross = 0;
+	private int _tileWords = 0;
+
+	private File _file = null;
+	private RandomAccessFile _raf = null;
+	private FileChannel _channel = null;
+	private ByteBuffer _io = null;
+
+	private long[][] _frames = null;	// the words of the tile in each frame
+	private int[] _holds = null;		// tile held by each frame (-1 if none)
+	private boolean[] _dirty = null;	// has the tile in each frame changed since it was read?
+	private boolean[] _used = null;		// has it been used since the clock hand last came round?
+	private int _hand = 0;
+	private int[] _where = null;		// frame holding each tile (-1 if on disk)
+	private long[] _saved = null;		// bit set for each tile which has been written out
+
+	// The tile last used, and its frame and words, so runs of cells in one tile skip the lookup
+	private int _tile = -1;
+	private int _frame = -1;
+	private long[] _words = null;
+
+	private long _faults = 0L;
+	private long _reads = 0L;
+	private long _writes = 0L;
+
+	/**
+	 * Make an (empty) w x h grid of tiles of the given size, holding at most
+	 * the given number of them in memory, in a scratch file in the given
+	 * directory (or the default temporary directory).
+	 */
+	public PagedGrid(int w,int h) throws IOException {
+		this(w, h, DEFAULT_TILE_SIZE, DEFAULT_FRAMES);
+	}
+	public PagedGrid(int w,int h,int tileSize,int frames) throws IOException {
+		this(w, h, tileSize, frames, null);
+	}
+	public PagedGrid(int w,int h,int tileSize,int frames,File directory) throws IOException {
+		super(w,h,4,0L);
+		if ( tileSize < 4 || tileSize > (1 << 15) || Integer.bitCount(tileSize) != 1 ) {
+			throw new IllegalArgumentException("tile size must be a power of two from 4 to 32768: " + tileSize);
+		}
+		if ( frames < 1 ) {
+			throw new IllegalArgumentException("need at least one frame: " + frames);
+		}
+		_tileShift = Integer.numberOfTrailingZeros(tileSize);
+		_tilesAcross = (w + tileSize - 1) >>> _tileShift;
+		long tiles = (long)_tilesAcross * ((h + tileSize - 1) >>> _tileShift);
+		if ( tiles > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalArgumentException("too many tiles: " + w + "x" + h + " in tiles of " + tileSize);
+		}
+		_tileWords = (tileSize * tileSize) >>> 4;
+
+		_frames = new long[Math.min(frames, (int)tiles)][];
+		_holds = new int[_frames.length];
+		Arrays.fill(_holds, -1);
+		_dirty = new boolean[_frames.length];
+		_used = new boolean[_frames.length];
+		_where = new int[(int)tiles];
+		Arrays.fill(_where, -1);
+		_saved = new long[(int)((tiles + 63) >>> 6)];
+
+		_file = File.createTempFile("maze", ".tiles", directory);
+		_file.deleteOnExit();
+		_raf = new RandomAccessFile(_file, "rw");
+		_channel = _raf.getChannel();
+		_io = ByteBuffer.allocateDirect(_tileWords * 8);
+	}
+
+	public int tileSize() { return 1 << _tileShift; }
+	public int frames() { return _frames.length; }
+	public int tiles() { return _where.length; }
+
+	/**
+	 * Return the number of faults (uses of a tile not in memory), and the
+	 * number of tiles read from, and written to, disk.
+	 */
+	public long faults() 	{ return _faults; }
+	public long reads() 	{ return _reads; }
+	public long writes() 	{ return _writes; }
+
+	/**
+	 * Return a one line report of the paging.
+	 */
+	public String stats() {
+		return "paged: " + tiles() + " tiles of " + tileSize() + "x" + tileSize() + ", " + frames() + " frames, "
+			+ _faults + " faults, " + _reads + " reads, " + _writes + " writes";
+	}
+
+	/**
+	 * Reset every cell in the grid to 0 (forgetting everything on disk).
+	 */
+	public void clear() {
+		for ( int f=0; f < _frames.length; ++f ) {
+			if ( _frames[f] != null ) {
+				Arrays.fill(_frames[f], 0L);
+			}
+			_dirty[f] = false;
+		}
+		Arrays.fill(_saved, 0L);
+	}
+
+	/**
+	 * Return a copy of the cells, tile after tile, read from the frames or
+	 * the scratch file (without faulting anything in), which restore() can
+	 * later copy back. It must fit in one long[], of course, so this is for
+	 * grids larger than the frames rather than larger than the heap.
+	 */
+	public long[] snapshot() {
+		long words = (long)tiles() * _tileWords;
+		if ( words > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalStateException("grid too large to snapshot: " + words + " words");
+		}
+		long[] snapshot = new long[(int)words];
+		for ( int tile=0; tile < tiles(); ++tile ) {
+			int frame = _where[tile];
+			if ( frame >= 0 ) {
+				System.arraycopy(_frames[frame], 0, snapshot, tile * _tileWords, _tileWords);
+			} else if ( (_saved[tile >>> 6] & (1L << tile)) != 0 ) {
+				_io.clear();
+				transfer(tile, false);
+				_io.flip();
+				_io.asLongBuffer().get(snapshot, tile * _tileWords, _tileWords);
+				++_reads;
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Copy a snapshot back: into the frames, for the tiles in memory, and
+	 * straight out to the scratch file for the rest.
+	 */
+	public void restore(long[] snapshot) {
+		if ( snapshot.length != (long)tiles() * _tileWords ) {
+			throw new IllegalArgumentException("snapshot does not match grid: " + snapshot.length + " words");
+		}
+		for ( int tile=0; tile < tiles(); ++tile ) {
+			int from = tile * _tileWords;
+			int frame = _where[tile];
+			if ( frame >= 0 ) {
+				System.arraycopy(snapshot, from, _frames[frame], 0, _tileWords);
+				_dirty[frame] = true;
+			} else if ( empty(snapshot, from) ) {
+				// an empty tile need not be written: it reads back as zeros once forgotten
+				_saved[tile >>> 6] &= ~(1L << tile);
+			} else {
+				_io.clear();
+				_io.asLongBuffer().put(snapshot, from, _tileWords);
+				transfer(tile, true);
+				_saved[tile >>> 6] |= 1L << tile;
+				++_writes;
+			}
+		}
+	}
+
+	/**
+	 * Close, and delete, the scratch file.
+	 */
+	public void close() throws IOException {
+		_raf.close();
+		_file.delete();
+	}
+
+	/**
+	 * Cells are indexed by their tile (high bits) and their place in it,
+	 * row by row (low bits).
+	 */
+	protected long index(int x,int y) {
+		int mask = (1 << _tileShift) - 1;
+		long tile = (long)(y >>> _tileShift) * _tilesAcross + (x >>> _tileShift);
+		return (tile << (2*_tileShift)) | ((y & mask) << _tileShift) | (x & mask);
+	}
+
+	protected int read(long i) {
+		int tile = (int)(i >>> (2*_tileShift));
+		long[] words = ( tile == _tile ) ? _words : page(tile);
+		int cell = (int)i & ((1 << (2*_tileShift)) - 1);
+		return (int)(words[cell >>> 4] >>> ((cell & 15) << 2)) & 0xF;
+	}
+
+	protected void write(long i,int bits) {
+		int tile = (int)(i >>> (2*_tileShift));
+		long[] words = ( tile == _tile ) ? _words : page(tile);
+		int cell = (int)i & ((1 << (2*_tileShift)) - 1);
+		int off = (cell & 15) << 2;
+		words[cell >>> 4] = (words[cell >>> 4] & ~(0xFL << off)) | ((long)(bits & 0xF) << off);
+		_dirty[_frame] = true;
+	}
+
+	// Make the tile the current one, faulting it into a frame if it is on disk
+	private long[] page(int tile) {
+		int frame = _where[tile];
+		if ( frame < 0 ) {
+			++_faults;
+			frame = victim();
+			load(tile, frame);
+		}
+		_used[frame] = true;
+		_tile = tile;
+		_frame = frame;
+		_words = _frames[frame];
+		return _words;
+	}
+
+	// Sweep the clock hand round to a free frame, or to one unused since it last came round
+	private int victim() {
+		while ( true ) {
+			int frame = _hand;
+			_hand = ( _hand + 1 == _frames.length ) ? 0 : _hand + 1;
+			if ( _holds[frame] < 0 ) {
+				return frame;
+			}
+			if ( _used[frame] ) {
+				_used[frame] = false;
+				continue;
+			}
+			evict(frame);
+			return frame;
+		}
+	}
+
+	// Write the tile in the frame back to disk, if it changed, and free the frame
+	private void evict(int frame) {
+		int tile = _holds[frame];
+		if ( _dirty[frame] ) {
+			_io.clear();
+			_io.asLongBuffer().put(_frames[frame]);
+			transfer(tile, true);
+			_saved[tile >>> 6] |= 1L << tile;
+			_dirty[frame] = false;
+			++_writes;
+		}
+		_where[tile] = -1;
+		_holds[frame] = -1;
+		if ( tile == _tile ) {
+			_tile = -1;
+		}
+	}
+
+	// Fill the (free) frame with the tile: from disk if it was written out, or else empty
+	private void load(int tile,int frame) {
+		if ( _frames[frame] == null ) {
+			_frames[frame] = new long[_tileWords];
+		}
+		if ( (_saved[tile >>> 6] & (1L << tile)) != 0 ) {
+			_io.clear();
+			transfer(tile, false);
+			_io.flip();
+			_io.asLongBuffer().get(_frames[frame]);
+			++_reads;
+		} else {
+			Arrays.fill(_frames[frame], 0L);
+		}
+		_holds[frame] = tile;
+		_where[tile] = frame;
+	}
+
+	// Are the words of the tile starting at from all 0?
+	private boolean empty(long[] words,int from) {
+		for ( int i=from; i < from + _tileWords; ++i ) {
+			if ( words[i] != 0L ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Write (or read) the whole of _io to (or from) the tile's place in the file
+	private void transfer(int tile,boolean write) {
+		long position = (long)tile * _io.capacity();
+		try {
+			while ( _io.hasRemaining() ) {
+				int n = write ? _channel.write(_io, position) : _channel.read(_io, position);
+				if ( n < 0 ) {
+					throw new IOException("scratch file truncated: " + _file);
+				}
+				position += n;
+			}
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
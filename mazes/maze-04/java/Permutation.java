@@ -0,0 +1,80 @@
+/***********************************************************************
+ * Class Permutation is a seeded, pseudo-random bijection over the
+ * integers 0 through n-1, computed on demand rather than stored.
+ *
+ * The permutation is a small (4-round) Feistel network over the
+ * smallest even number of bits covering n, keyed with round keys
+ * drawn from the supplied RandomSource. Since a Feistel network permutes
+ * its whole 2^bits domain, values that land outside [0,n) are simply
+ * fed back through the network ("cycle-walking") until they land
+ * inside it. The domain is less than 4n, so on average fewer than
+ * four passes are needed.
+ *
+ * Kruskal uses this to visit the walls of the maze in random order
+ * without ever materializing (or shuffling) a list of edges.
+ *
+ * @author psholtz
+ **********************************************************************/
+public class Permutation {
+	// Define class variables
+	private static final int ROUNDS = 4;
+
+	// Define instance variables
+	private long _n = 0;
+	private int _half = 0;
+	private long _mask = 0;
+	private long[] _keys = null;
+
+	/**
+	 * Build a permutation of 0 through n-1, keyed from the given RandomSource.
+	 */
+	public Permutation(long n,RandomSource random) {
+		if ( n < 1 ) {
+			throw new IllegalArgumentException("permutation must have at least one element: " + n);
+		}
+		_n = n;
+
+		// smallest even number of bits which covers 0 .. n-1
+		int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(n - 1));
+		bits += bits & 1;
+		_half = bits / 2;
+		_mask = (1L << _half) - 1;
+
+		_keys = new long[ROUNDS];
+		for ( int i=0; i < ROUNDS; ++i ) {
+			_keys[i] = random.nextLong();
+		}
+	}
+
+	public long size() { return _n; }
+
+	/**
+	 * Return the element at position i (0 <= i < n) of the permutation.
+	 */
+	public long get(long i) {
+		long x = i;
+		do {
+			x = encrypt(x);
+		} while ( x >= _n );
+		return x;
+	}
+
+	// One pass through the Feistel network
+	private long encrypt(long x) {
+		long left = (x >>> _half) & _mask;
+		long right = x & _mask;
+		for ( int r=0; r < ROUNDS; ++r ) {
+			long tmp = right;
+			right = left ^ (mix(right ^ _keys[r]) & _mask);
+			left = tmp;
+		}
+		return (left << _half) | right;
+	}
+
+	// 64-bit finalizer (from MurmurHash3) used as the round function
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+}
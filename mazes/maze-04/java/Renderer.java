@@ -0,0 +1,378 @@
+/***********************************************************************
+ * Class Renderer draws a Grid as ASCII, for Maze.draw() and for the
+ * animations drawn by an Animator while a maze is being carved.
+ *
+ * Every cell is drawn as two characters: its "bottom" (from the S
+ * switch) and its "side" (from the E switch, and the S switches of
+ * the cell and its east neighbor). Rather than working these out
+ * (and printing them) one at a time, each cell is reduced to a 5-bit
+ * key, and the two characters are looked up in a precomputed table.
+ *
+ * Each line is built up in a reusable byte[], and lines are collected
+ * in a single buffer which is written out to a channel only when it
+ * fills up, or when flush() is called. Anything else written to the
+ * same stream (e.g., with System.out) must wait for a flush().
+ *
+ * For animation, update() redraws only the cells passed to touch()
+ * since the last update, moving the cursor to each one with an escape
+ * sequence, so every step of an animation costs O(1) output rather
+ * than a repaint of the whole grid. The first update() paints the
+ * whole grid; later ones leave the cursor just below it.
+ *
+ * The renderer also remembers the "current cursor" cell of an animation
+ * (see cursor()), which color() may use to pick the cell out.
+ *
+ * Subclasses can override key() to draw cells differently, color()
+ * to give cells a background color, and touch() if a cell's key
+ * depends on more than its east neighbor.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+public class Renderer {
+	// Define class variables
+	public static final byte ESC = 27;
+	public static final int GRAY = 47;
+	public static final int RED = 41;
+
+	// Bit in the key for the S switch of the east neighbor
+	public static final int EAST_S = 16;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// Two characters (bottom, side) for each of the 32 keys
+	private static final byte[] GLYPHS = new byte[64];
+	static {
+		for ( int key=0; key < 32; ++key ) {
+			boolean south = (key & Maze.S) != 0;
+			boolean east = (key & Maze.E) != 0;
+			boolean eastSouth = (key & EAST_S) != 0;
+			GLYPHS[2*key] = (byte)(south ? ' ' : '_');
+			GLYPHS[2*key+1] = (byte)(!east ? '|' : ( south || eastSouth ) ? ' ' : '_');
+		}
+	}
+
+	// Define instance variables
+	protected Grid _grid = null;
+	private WritableByteChannel _out = null;
+	private ByteBuffer _buffer = null;
+	private byte[] _line = null;
+
+	// Cells to redraw on the next update(), packed as y*width + x
+	private int[] _dirty = null;
+	private long[] _marked = null;
+	private int _count = 0;
+	private boolean _painted = false;
+
+	// The "current cursor" cell, or -1 if none
+	protected int _cursorX = -1;
+	protected int _cursorY = -1;
+
+	/**
+	 * Build a renderer for the grid, writing to standard output (or to the given stream).
+	 */
+	public Renderer(Grid grid) {
+		this(grid, new FileOutputStream(FileDescriptor.out));
+	}
+	public Renderer(Grid grid,OutputStream out) {
+		_grid = grid;
+		_out = Channels.newChannel(out);
+		_buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		// room for "|", two characters and two color escapes per cell, and a newline
+		// (or for a single cell and its cursor positioning escape, during update)
+		_line = new byte[Math.max(14 * grid.width() + 2, 48)];
+	}
+
+	/**
+	 * Return the key (from 0 to 31) of the cell at (x,y): its N/S/E/W switches,
+	 * plus EAST_S if its east neighbor has its S switch on.
+	 */
+	protected int key(int x,int y) {
+		int cell = _grid.get(x,y) & 0xF;
+		if ( (cell & Maze.E) != 0 && (_grid.get(x+1,y) & Maze.S) != 0 ) {
+			cell |= EAST_S;
+		}
+		return cell;
+	}
+
+	/**
+	 * Return the ANSI background color of the cell at (x,y), or 0 for none.
+	 */
+	protected int color(int x,int y) {
+		return 0;
+	}
+
+	/**
+	 * Clear the screen.
+	 */
+	public void clear() {
+		escape("[2J");
+	}
+
+	/**
+	 * Move the cursor to the upper left of the screen.
+	 */
+	public void home() {
+		escape("[H");
+	}
+
+	/**
+	 * Draw the "top" line.
+	 */
+	public void top() {
+		int n = 0;
+		_line[n++] = ' ';
+		for ( int i=0; i < (_grid.width()*2 - 1); ++i ) {
+			_line[n++] = '_';
+		}
+		_line[n++] = '\n';
+		write(_line, n);
+	}
+
+	/**
+	 * Draw row y of the grid.
+	 */
+	public void row(int y) {
+		int w = _grid.width();
+		int n = 0;
+		_line[n++] = '|';
+		for ( int x=0; x < w; ++x ) {
+			n = glyphs(n, x, y);
+		}
+		_line[n++] = '\n';
+		write(_line, n);
+	}
+
+	/**
+	 * Draw a row given directly as an array of N/S/E/W switches (e.g., by Eller).
+	 */
+	public void row(int[] cells) {
+		int n = 0;
+		_line[n++] = '|';
+		for ( int x=0; x < cells.length; ++x ) {
+			int key = cells[x] & 0xF;
+			if ( (key & Maze.E) != 0 && (cells[x+1] & Maze.S) != 0 ) {
+				key |= EAST_S;
+			}
+			_line[n++] = GLYPHS[2*key];
+			_line[n++] = GLYPHS[2*key+1];
+		}
+		_line[n++] = '\n';
+		write(_line, n);
+	}
+
+	/**
+	 * Draw the whole grid: the top line, and then every row.
+	 */
+	public void rows() {
+		top();
+		for ( int y=0; y < _grid.height(); ++y ) {
+			row(y);
+		}
+	}
+
+	/**
+	 * Note that the cell at (x,y) has changed, so the next update() redraws it, along
+	 * with its west neighbor (whose side character depends on this cell's S switch).
+	 */
+	public void touch(int x,int y) {
+		mark(x,y);
+		mark(x-1,y);
+	}
+
+	/**
+	 * Move the "current cursor" to (x,y), or to nowhere if x < 0, touching the
+	 * cells it moves from and to.
+	 */
+	public void cursor(int x,int y) {
+		if ( x != _cursorX || y != _cursorY ) {
+			touch(_cursorX,_cursorY);
+			_cursorX = x;
+			_cursorY = y;
+			touch(_cursorX,_cursorY);
+		}
+	}
+
+	/**
+	 * Forget the touched cells, and have the next update() repaint the whole grid.
+	 */
+	public void invalidate() {
+		clearMarks();
+		_painted = false;
+	}
+
+	/**
+	 * Redraw the cells touched since the last update (or, the first time, the whole
+	 * grid), leaving the cursor at the start of the line below the grid.
+	 */
+	public void update() {
+		if ( !_painted ) {
+			home();
+			rows();
+			_painted = true;
+		} else if ( _count > 0 ) {
+			int w = _grid.width();
+			for ( int i=0; i < _count; ++i ) {
+				int x = _dirty[i] % w;
+				int y = _dirty[i] / w;
+
+				// cell (x,y) is drawn at row y+2 (below the top line), column 2x+2 (after the "|")
+				int n = moveTo(0, y+2, 2*x+2);
+				write(_line, glyphs(n, x, y));
+			}
+			write(_line, moveTo(0, _grid.height()+2, 1));
+		}
+		clearMarks();
+	}
+
+	private void clearMarks() {
+		for ( int i=0; i < _count; ++i ) {
+			_marked[_dirty[i] >>> 6] = 0;
+		}
+		_count = 0;
+	}
+
+	/**
+	 * Add the cell at (x,y), if it is on the grid, to the cells redrawn by the next update().
+	 */
+	protected void mark(int x,int y) {
+		int w = _grid.width();
+		if ( x < 0 || y < 0 || x >= w || y >= _grid.height() ) {
+			return;
+		}
+		if ( _marked == null ) {
+			_marked = new long[(int)(((long)w * _grid.height() + 63) >>> 6)];
+			_dirty = new int[64];
+		}
+		int i = y*w + x;
+		if ( (_marked[i >>> 6] & (1L << i)) != 0 ) {
+			return;
+		}
+		_marked[i >>> 6] |= 1L << i;
+		if ( _count == _dirty.length ) {
+			_dirty = Arrays.copyOf(_dirty, _count * 2);
+		}
+		_dirty[_count++] = i;
+	}
+
+	public void print(String s) {
+		for ( int i=0; i < s.length(); ++i ) {
+			put((byte)s.charAt(i));
+		}
+	}
+
+	public void println(String s) {
+		print(s);
+		put((byte)'\n');
+	}
+
+	/**
+	 * Write out everything buffered so far.
+	 */
+	public void flush() {
+		_buffer.flip();
+		try {
+			while ( _buffer.hasRemaining() ) {
+				_out.write(_buffer);
+			}
+		} catch ( IOException ex ) {
+			throw new UncheckedIOException(ex);
+		} finally {
+			_buffer.clear();
+		}
+	}
+
+	// Write the escape sequence ESC + s
+	protected void escape(String s) {
+		put(ESC);
+		print(s);
+	}
+
+	// Append the (colored) two characters of the cell at (x,y) to the line buffer at n
+	private int glyphs(int n,int x,int y) {
+		int color = color(x,y);
+		if ( color != 0 ) {
+			n = sgr(n, color);
+		}
+		int key = key(x,y);
+		_line[n++] = GLYPHS[2*key];
+		_line[n++] = GLYPHS[2*key+1];
+		if ( color != 0 ) {
+			n = sgr(n, 0);
+		}
+		return n;
+	}
+
+	// Append the cursor position escape "ESC[<row>;<col>H" (1-based) to the line buffer at n
+	private int moveTo(int n,int row,int col) {
+		_line[n++] = ESC;
+		_line[n++] = '[';
+		n = digits(n, row);
+		_line[n++] = ';';
+		n = digits(n, col);
+		_line[n++] = 'H';
+		return n;
+	}
+
+	private int digits(int n,int value) {
+		int start = n;
+		do {
+			_line[n++] = (byte)('0' + value % 10);
+			value /= 10;
+		} while ( value > 0 );
+		for ( int i=start, j=n-1; i < j; ++i, --j ) {
+			byte tmp = _line[i]; _line[i] = _line[j]; _line[j] = tmp;
+		}
+		return n;
+	}
+
+	// Append the "select graphic rendition" escape "ESC[<color>m" (or "ESC[m" for color 0) to the line buffer at n
+	private int sgr(int n,int color) {
+		_line[n++] = ESC;
+		_line[n++] = '[';
+		if ( color != 0 ) {
+			_line[n++] = (byte)('0' + color / 10);
+			_line[n++] = (byte)('0' + color % 10);
+		}
+		_line[n++] = 'm';
+		return n;
+	}
+
+	private void put(byte b) {
+		if ( !_buffer.hasRemaining() ) {
+			flush();
+		}
+		_buffer.put(b);
+	}
+
+	private void write(byte[] bytes,int n) {
+		if ( _buffer.remaining() < n ) {
+			flush();
+		}
+		if ( n > _buffer.capacity() ) {
+			// line too long to buffer: write it straight through
+			flush();
+			try {
+				ByteBuffer tmp = ByteBuffer.wrap(bytes, 0, n);
+				while ( tmp.hasRemaining() ) {
+					_out.write(tmp);
+				}
+			} catch ( IOException ex ) {
+				throw new UncheckedIOException(ex);
+			}
+			return;
+		}
+		_buffer.put(bytes, 0, n);
+	}
+}
@@ -0,0 +1,114 @@
+/***********************************************************************
+ * Class CarveEvents is a bounded, lock-free ring buffer of carve events,
+ * passed from one producer thread (the maze generator) to one consumer
+ * thread (the Animator).
+ *
+ * An event is a long: the packed cell index (y*width + x) shifted left
+ * by 4, or'ed with the direction carved (Maze.N, S, E or W), or with 0
+ * if the cell merely changed (e.g., joined Prim's frontier).
+ *
+ * Each side owns its own counter; the other side only reads it. Slots
+ * are published with a release store (lazySet) of the tail, and freed
+ * with a release store of the head, so no locks or CAS are needed.
+ * offer() never blocks: when the ring is full the event is dropped, and
+ * it is up to the caller to recover (the Animator repaints the grid).
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CarveEvents {
+	// Define class variables
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	public static final long TOUCH = 0;
+
+	// Define instance variables
+	private final long[] _events;
+	private final int _mask;
+	private final AtomicLong _head = new AtomicLong();	// next slot to poll (written by the consumer)
+	private final AtomicLong _tail = new AtomicLong();	// next slot to offer (written by the producer)
+
+	// Producer's and consumer's cached view of the other side's counter
+	private long _headCache = 0;
+	private long _tailCache = 0;
+
+	public CarveEvents() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Build a ring holding capacity events, rounded up to a power of two.
+	 */
+	public CarveEvents(int capacity) {
+		if ( capacity < 1 || capacity > (1 << 30) ) {
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if ( size < capacity ) {
+			size <<= 1;
+		}
+		_events = new long[size];
+		_mask = size - 1;
+	}
+
+	/**
+	 * Pack a cell index and a direction (or TOUCH) into an event.
+	 */
+	public static long event(int cell,int direction) {
+		return ((long)cell << 4) | direction;
+	}
+
+	public static int cell(long event) {
+		return (int)(event >>> 4);
+	}
+
+	public static int direction(long event) {
+		return (int)(event & 0xF);
+	}
+
+	/**
+	 * Append an event (producer only). Return false, dropping the event,
+	 * if the ring is full.
+	 */
+	public boolean offer(long event) {
+		long tail = _tail.get();
+		if ( tail - _headCache == _events.length ) {
+			_headCache = _head.get();
+			if ( tail - _headCache == _events.length ) {
+				return false;
+			}
+		}
+		_events[(int)tail & _mask] = event;
+		_tail.lazySet(tail + 1);
+		return true;
+	}
+
+	/**
+	 * Remove up to max events into the given array (consumer only), and
+	 * return how many were removed.
+	 */
+	public int drain(long[] into,int max) {
+		long head = _head.get();
+		if ( head == _tailCache ) {
+			_tailCache = _tail.get();
+		}
+		int n = (int)Math.min(max, _tailCache - head);
+		for ( int i=0; i < n; ++i ) {
+			into[i] = _events[(int)(head + i) & _mask];
+		}
+		_head.lazySet(head + n);
+		return n;
+	}
+
+	/**
+	 * Are there no events waiting? (Exact only from the consumer thread.)
+	 */
+	public boolean isEmpty() {
+		return _head.get() == _tail.get();
+	}
+
+	public int capacity() {
+		return _events.length;
+	}
+}
@@ -0,0 +1,239 @@
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/****************************************************************************************
+ * Generate a maze using Eller's algorithm.
+ *
+ * Eller's algorithm builds the maze one row at a time, remembering only which "set"
+ * each cell of the current row belongs to (two cells are in the same set if they are
+ * already joined by some passage through the rows above):
+ *
+ * (1) Give every cell of the row which is not yet in a set a set of its own.
+ * (2) Randomly join adjacent cells, so long as they are in different sets.
+ * (3) For each set, randomly carve downward from at least one of its cells.
+ * (4) Move to the next row and repeat at Step 1.
+ * (5) On the last row, join every pair of adjacent cells in different sets.
+ *
+ * Since nothing about earlier rows is needed, a row is finished (and can be handed
+ * out through the Iterator interface) as soon as it is carved, and memory is O(width)
+ * no matter how tall the maze grows. A maze with 0 rows never ends: it can be streamed
+ * to a file or socket forever.
+ *
+ * @author psholtz
+ ****************************************************************************************/
+public class Eller extends Maze implements Iterator<int[]> {
+	// Define instance variables
+	private long _rows = 0;		// number of rows to generate, or 0 for endless
+	private long _y = 0;		// index of the next row to generate
+
+	private int[] _cells = null;	// the N/S/E/W bits of the current row
+	private int[] _sets = null;	// set label of each cell in the current row
+	private int[] _parent = null;	// union-find over set labels, within the row
+	private int[] _seen = null;	// per label: number of cells seen so far in step (3)
+	private int[] _pick = null;	// per label: cell picked to carve down, if none did
+	private boolean[] _used = null;	// per label: already in use in the current row
+	private boolean[] _down = null;	// per label: carved down at least once
+
+	//
+	// Standard Constructors
+	//
+	public Eller() {
+		this(DEFAULT_WIDTH,DEFAULT_HEIGHT);
+	}
+	public Eller(int w,long rows) {
+		super(w,1);
+		initialize(rows);
+	}
+	public Eller(int w,long rows,long seed) {
+		super(w,1,seed);
+		initialize(rows);
+	}
+
+	private void initialize(long rows) {
+		_rows = rows;
+		_cells = new int[_w];
+
+		// describe the number of rows (0 if endless), rather than the single row held in memory
+		_metadata = new Metadata(algorithm(),_w,rows,_seed);
+		_sets = new int[_w];
+		_parent = new int[_w];
+		_seen = new int[_w];
+		_pick = new int[_w];
+		_used = new boolean[_w];
+		_down = new boolean[_w];
+
+		// labels 0 .. _w-1 are enough, since no row ever holds more than _w sets
+		for ( int x=0; x < _w; ++x ) {
+			_sets[x] = -1;
+		}
+	}
+
+	/**
+	 * Are there more rows? (Always true for an endless maze.)
+	 */
+	public boolean hasNext() {
+		return _rows <= 0 || _y < _rows;
+	}
+
+	/**
+	 * Carve and return the next row of the maze, as an array of N/S/E/W bits.
+	 *
+	 * The same array is reused (and overwritten) by every call to next(), so
+	 * copy it if it needs to outlive the following call.
+	 */
+	public int[] next() {
+		if ( !hasNext() ) {
+			throw new NoSuchElementException();
+		}
+		boolean last = _rows > 0 && _y == _rows - 1;
+
+		if ( _y > 0 ) {
+			advance();
+		}
+		populate();
+		join(last);
+		if ( !last ) {
+			carveDown();
+		}
+		++_y;
+		return _cells;
+	}
+
+	/**
+	 * Rows cannot be removed from the maze.
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Return the index of the row which will be returned by the next call to next().
+	 */
+	public long row() {
+		return _y;
+	}
+
+	/*****************************************************************************
+	 * Step (1): cells not carried down from the row above get a label which no
+	 * cell in this row is using. Every label starts out as its own set.
+	 *****************************************************************************/
+	private void populate() {
+		for ( int i=0; i < _w; ++i ) {
+			_used[i] = false;
+			_parent[i] = i;
+		}
+		for ( int x=0; x < _w; ++x ) {
+			if ( _sets[x] >= 0 ) {
+				_used[_sets[x]] = true;
+			}
+		}
+		int free = 0;
+		for ( int x=0; x < _w; ++x ) {
+			if ( _sets[x] < 0 ) {
+				while ( _used[free] ) {
+					++free;
+				}
+				_sets[x] = free++;
+			}
+		}
+	}
+
+	/*****************************************************************************
+	 * Step (2), or step (5) on the last row: join adjacent cells in different sets.
+	 *****************************************************************************/
+	private void join(boolean last) {
+		for ( int x=0; x+1 < _w; ++x ) {
+			int a = find(_sets[x]);
+			int b = find(_sets[x+1]);
+			if ( a != b && ( last || _random.nextBoolean() ) ) {
+				_parent[b] = a;
+				_cells[x] |= Maze.E;
+				_cells[x+1] |= Maze.W;
+			}
+		}
+		for ( int x=0; x < _w; ++x ) {
+			_sets[x] = find(_sets[x]);
+		}
+	}
+
+	/*****************************************************************************
+	 * Step (3): each cell carves down with probability 1/2. For each set, one of
+	 * its cells is also picked uniformly at random (by reservoir sampling), and
+	 * carves down if no other cell of the set did. Cells which did not carve down
+	 * leave the next row with no set (see advance).
+	 *****************************************************************************/
+	private void carveDown() {
+		for ( int i=0; i < _w; ++i ) {
+			_seen[i] = 0;
+			_down[i] = false;
+		}
+		for ( int x=0; x < _w; ++x ) {
+			int set = _sets[x];
+			if ( _random.nextInt(++_seen[set]) == 0 ) {
+				_pick[set] = x;
+			}
+			if ( _random.nextBoolean() ) {
+				_cells[x] |= Maze.S;
+				_down[set] = true;
+			}
+		}
+		for ( int x=0; x < _w; ++x ) {
+			int set = _sets[x];
+			if ( !_down[set] && _pick[set] == x ) {
+				_cells[x] |= Maze.S;
+				_down[set] = true;
+			}
+		}
+	}
+
+	/*****************************************************************************
+	 * Move on from the row just handed out: cells below a downward passage open
+	 * to the north and stay in the same set; every other cell starts empty.
+	 *****************************************************************************/
+	private void advance() {
+		for ( int x=0; x < _w; ++x ) {
+			if ( (_cells[x] & Maze.S) != 0 ) {
+				_cells[x] = Maze.N;
+			} else {
+				_cells[x] = 0;
+				_sets[x] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Draw the maze, starting in the upper-left hand corner, one row at a time
+	 * as the rows are generated. An endless maze draws until interrupted.
+	 */
+	public void draw() {
+		// draw the "top" line
+		Renderer r = renderer();
+		r.top();
+
+		// draw each row, as it is generated (stopping if the output is closed)
+		try {
+			while ( hasNext() ) {
+				r.row(next());
+			}
+
+			// a finished maze is a spanning tree: every cell but one was carved into
+			_metadata.setEdges(_metadata.cells() - 1);
+
+			// output maze metadata
+			r.println(metadata().text());
+			r.flush();
+		} catch ( UncheckedIOException ex ) {
+			// pass by exception
+		}
+	}
+
+	// Union-find over labels, with path halving
+	private int find(int i) {
+		while ( _parent[i] != i ) {
+			_parent[i] = _parent[_parent[i]];
+			i = _parent[i];
+		}
+		return i;
+	}
+}
@@ -0,0 +1,149 @@
+/***********************************************************************
+ * Class Grid stores the cells of a maze packed into a single flat
+ * long[], rather than as one int per cell in an int[h][w] array.
+ *
+ * By default each cell takes 4 bits (just the N/S/E/W switches), so
+ * sixteen cells share one long. Algorithms that need extra per-cell
+ * flags (e.g., Prim's IN and FRONTIER) can ask for 8 bits per cell.
+ *
+ * Rows are padded out to a whole number of words, so that no two rows
+ * ever share a long. Cells are addressed by a long "index", which for
+ * this (row-major) layout is simply y*stride + x.
+ *
+ * Code generating many mazes of the same size (see Batch) can hand a
+ * grid it is done with to recycle(), and the next obtain() of the same
+ * size on that thread clears and returns it, rather than allocating.
+ *
+ * @author psholtz
+ **********************************************************************/
+
+import java.util.Arrays;
+
+public class Grid {
+	// Define instance variables
+	protected int _w = 0;
+	protected int _h = 0;
+	protected int _bits = 4;
+	protected long _stride = 0;
+
+	private int _shift = 0;
+	private int _mask = 0;
+	private long[] _words = null;
+
+	// Grid handed back to recycle() on each thread, for obtain() to reuse
+	private static final ThreadLocal<Grid> RECYCLED = new ThreadLocal<Grid>();
+
+	/**
+	 * Initialize a new (empty) grid of the given width and height,
+	 * optionally specifying the number of bits (4 or 8) per cell.
+	 */
+	public Grid(int w,int h) {
+		this(w,h,4);
+	}
+	public Grid(int w,int h,int bits) {
+		if ( bits != 4 && bits != 8 ) {
+			throw new IllegalArgumentException("bits per cell must be 4 or 8: " + bits);
+		}
+		_w = w; _h = h;
+		_bits = bits;
+		_mask = (1 << bits) - 1;
+
+		// cells per word is 16 (4 bits) or 8 (8 bits)
+		int perWord = 64 / bits;
+		_shift = Integer.numberOfTrailingZeros(perWord);
+		_stride = ((long)w + perWord - 1) / perWord * perWord;
+
+		long words = (_stride * h) >>> _shift;
+		if ( words > Integer.MAX_VALUE - 8 ) {
+			throw new IllegalArgumentException("grid too large: " + w + "x" + h);
+		}
+		_words = new long[(int)words];
+	}
+
+	/**
+	 * Return an empty grid of the given size: the one last recycled on this
+	 * thread, if it is the right size, or else a new one.
+	 */
+	public static Grid obtain(int w,int h,int bits) {
+		Grid grid = RECYCLED.get();
+		if ( grid != null && grid._w == w && grid._h == h && grid._bits == bits && grid.getClass() == Grid.class ) {
+			RECYCLED.set(null);
+			grid.clear();
+			return grid;
+		}
+		return new Grid(w,h,bits);
+	}
+
+	/**
+	 * Hand back a grid which is no longer in use, for obtain() to reuse.
+	 */
+	public static void recycle(Grid grid) {
+		RECYCLED.set(grid);
+	}
+
+	public int width() { return _w; }
+	public int height() { return _h; }
+	public int bits() { return _bits; }
+
+	/**
+	 * Return the contents of the cell at (x,y).
+	 */
+	public int get(int x,int y) {
+		return read(index(x,y));
+	}
+
+	/**
+	 * Overwrite the contents of the cell at (x,y).
+	 */
+	public void set(int x,int y,int bits) {
+		write(index(x,y), bits);
+	}
+
+	/**
+	 * Switch on the given bits in the cell at (x,y).
+	 */
+	public void or(int x,int y,int bits) {
+		long i = index(x,y);
+		write(i, read(i) | bits);
+	}
+
+	/**
+	 * Reset every cell in the grid to 0.
+	 */
+	public void clear() {
+		Arrays.fill(_words, 0L);
+	}
+
+	/**
+	 * Return a copy of the packed cells, which restore() can later copy back
+	 * (e.g., to take snapshots of a maze while it is carved or replayed).
+	 */
+	public long[] snapshot() {
+		return _words.clone();
+	}
+
+	public void restore(long[] snapshot) {
+		if ( snapshot.length != _words.length ) {
+			throw new IllegalArgumentException("snapshot does not match grid: " + snapshot.length + " words");
+		}
+		System.arraycopy(snapshot, 0, _words, 0, _words.length);
+	}
+
+	/**
+	 * Map the coordinates (x,y) to the index of the cell in the packed array.
+	 */
+	protected long index(int x,int y) {
+		return y * _stride + x;
+	}
+
+	protected int read(long i) {
+		int off = (int)(i & ((1 << _shift) - 1)) * _bits;
+		return (int)(_words[(int)(i >>> _shift)] >>> off) & _mask;
+	}
+
+	protected void write(long i,int bits) {
+		int w = (int)(i >>> _shift);
+		int off = (int)(i & ((1 << _shift) - 1)) * _bits;
+		_words[w] = (_words[w] & ~((long)_mask << off)) | ((long)(bits & _mask) << off);
+	}
+}
@@ -0,0 +1,247 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Class Maze defines basic behavior to which a maze should conform.
+ * It provides basic initialization/construction for the maze class,
+ * and provides a method for drawing ASCII mazes. 
+ * 
+ * @author psholtz
+ */
+public class Maze {
+	// Define class variables 
+	public static final int N = 1;
+	public static final int S = 2;
+	public static final int E = 4;
+	public static final int W = 8;
+
+	public static final int DEFAULT_WIDTH = 10;
+	public static final int DEFAULT_HEIGHT = 10;
+
+	protected RandomSource _random = null;
+	protected Long _seed = null; 
+	protected Metadata _metadata = null;
+	protected int _w = 0;
+	protected int _h = 0;
+	protected Grid _grid = null;
+	protected Renderer _renderer = null;
+	protected OutputStream _output = null;
+	protected Animator _animator = null;
+	protected int _fps = Animator.DEFAULT_FRAME_RATE;
+	private long _started = 0L;
+
+	// Define class methods
+	public static int DX(int direction) {
+		switch ( direction ) {
+		case Maze.E:
+			return +1;
+		case Maze.W:
+			return -1;
+		case Maze.N:
+		case Maze.S:
+			return 0;
+		}
+		// error condition, but should never reach here
+		return -1;
+	}
+
+	public static int DY(int direction) {
+		switch ( direction ) {
+		case Maze.E:
+		case Maze.W:
+			return 0;
+		case Maze.N:
+			return -1;
+		case Maze.S:
+			return 1;
+		}
+		// error condition, but should never reach here
+		return -1;
+	}
+
+	public static int OPPOSITE(int direction) {
+		switch ( direction ) {
+		case Maze.E:
+			return Maze.W;
+		case Maze.W:
+			return Maze.E;
+		case Maze.N:
+			return Maze.S;
+		case Maze.S:
+			return Maze.N;
+		}
+		// error condition, but should never reach here
+		return -1;
+	}
+
+
+	/**
+	 * Initialize a new 2D maze with, optionally supply the width, height and seed.
+	 * 
+	 * Default seed will give "random" behavior.
+	 * User-supplied seed value will give "deterministic" behavior. 
+	 */
+	public Maze() {
+		this(DEFAULT_WIDTH,DEFAULT_HEIGHT);
+	}
+	public Maze(int w,int h) {
+		initialize(w,h);
+		_random = RandomSource.create();
+		_metadata = new Metadata(algorithm(),w,h,_seed);
+	}
+	public Maze(int w,int h,long seed) {
+		initialize(w,h);
+		_random = RandomSource.create(seed);
+		_seed = Long.valueOf(seed);
+		_metadata = new Metadata(algorithm(),w,h,_seed);
+	}
+	private void initialize(int w,int h) {
+		_w = w; _h = h; 
+		_grid = createGrid(w,h);
+	}
+
+	/**
+	 * Build the (empty) grid of cells. Subclasses needing more than the
+	 * four direction bits per cell may override to ask for a wider grid.
+	 */
+	protected Grid createGrid(int w,int h) {
+		return Grid.obtain(w,h,4);
+	}
+
+	/**
+	 * Return the contents of the cell at (x,y).
+	 */
+	protected int cell(int x,int y) {
+		return _grid.get(x,y);
+	}
+
+	/**
+	 * Knock down the wall between (x,y) and its neighbor in the given direction.
+	 */
+	protected void carve(int x,int y,int direction) {
+		_grid.or(x,y,direction);
+		_grid.or(x + DX(direction), y + DY(direction), OPPOSITE(direction));
+		_metadata.carved();
+		if ( _animator != null ) {
+			_animator.carve(x,y,direction);
+		} else {
+			touch(x,y);
+			touch(x + DX(direction), y + DY(direction));
+		}
+	}
+
+	/***********************************************************************
+	 * Note that the cell at (x,y) has changed, so that an animation only
+	 * needs to redraw the cells which changed (see Renderer.update).
+	 ***********************************************************************/
+	protected void touch(int x,int y) {
+		if ( _animator != null ) {
+			_animator.touch(x,y);
+		} else if ( _renderer != null ) {
+			_renderer.touch(x,y);
+		}
+	}
+
+	/***********************************************************************
+	 * Move the "current cursor" of an animation to (x,y), or to nowhere
+	 * if x < 0.
+	 ***********************************************************************/
+	protected void cursor(int x,int y) {
+		if ( _animator != null ) {
+			_animator.cursor(x,y);
+		} else if ( _renderer != null ) {
+			_renderer.cursor(x,y);
+		}
+	}
+
+	/***********************************************************************
+	 * Set the number of frames per second drawn while animating.
+	 ***********************************************************************/
+	public void setFrameRate(int fps) {
+		_fps = fps;
+	}
+
+	/***********************************************************************
+	 * Start drawing the maze on an Animator thread: from here until
+	 * finishAnimation(), carve() and touch() publish carve events to it
+	 * rather than drawing anything themselves.
+	 ***********************************************************************/
+	protected void startAnimation() {
+		_animator = new Animator(renderer(), _w, _fps);
+		_animator.start();
+	}
+
+	/***********************************************************************
+	 * Wait for the Animator to draw everything carved so far, and stop it.
+	 ***********************************************************************/
+	protected void finishAnimation() {
+		_animator.finish();
+		_animator = null;
+	}
+
+	/**
+	 * Build the Renderer used to draw the maze. Subclasses may override
+	 * to color or draw cells differently (e.g., when animating).
+	 */
+	protected Renderer createRenderer() {
+		return new Renderer(_grid,output());
+	}
+
+	/***********************************************************************
+	 * Draw to the given stream rather than to standard output.
+	 ***********************************************************************/
+	public void setOutput(OutputStream out) {
+		_output = out;
+		_renderer = null;
+	}
+
+	protected OutputStream output() {
+		return ( _output != null ) ? _output : new FileOutputStream(FileDescriptor.out);
+	}
+
+	protected Renderer renderer() {
+		if ( _renderer == null ) {
+			_renderer = createRenderer();
+		}
+		return _renderer;
+	}
+
+	/**
+	 * Draw the grid, starting in the upper-left hand corner. 
+	 */
+	public void draw() {
+		// draw the "top" line, and then each row
+		Renderer r = renderer();
+		r.rows();
+
+		// output maze metadata
+		r.println(metadata().text());
+		r.flush();
+	}
+
+	/**
+	 * Return the name of the algorithm, as given in the maze metadata.
+	 */
+	protected String algorithm() {
+		return getClass().getSimpleName();
+	}
+
+	/**
+	 * Return the metadata describing the maze: built once, when the maze
+	 * is constructed, and counting the passages carved since.
+	 */
+	public Metadata metadata() {
+		return _metadata;
+	}
+
+	/**
+	 * Bracket the carving of the passages, so as to time it for the metadata.
+	 */
+	protected void generating() {
+		_started = System.nanoTime();
+	}
+	protected void generated() {
+		_metadata.generated(System.nanoTime() - _started);
+	}
+}